@@ -0,0 +1,39 @@
+package com.victor.library;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Renders the springfox documentation into the build output, where the prod profile
+ * serves it from instead of scanning the controllers on every boot. Bound to the
+ * {@code process-classes} phase, so the file is in place before the tests and the jar.
+ */
+public final class ApiDocsGenerator {
+
+    private ApiDocsGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        generate(Paths.get(args[0]));
+    }
+
+    public static void generate(Path target) throws IOException {
+        // devtools would restart the application in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                new SpringApplicationBuilder(LibraryApiApplication.class)
+                        .properties("server.port=0", "spring.main.banner-mode=off", "spring.jmx.enabled=false")
+                        .run()) {
+            String url = "http://localhost:" + context.getWebServer().getPort() + "/v2/api-docs";
+            byte[] apiDocs = new RestTemplate().getForObject(url, byte[].class);
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Files.write(target, apiDocs);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.victor.library;
 
+import com.victor.library.api.dto.LoanDTO;
+import com.victor.library.model.entity.Loan;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -12,7 +14,12 @@ public class LibraryApiApplication {
 
 	@Bean
 	public ModelMapper modelMapper(){
-		return new ModelMapper();
+		ModelMapper modelMapper = new ModelMapper();
+		// the loan email would also match borrower.email, so it is mapped explicitly
+		modelMapper.emptyTypeMap(Loan.class, LoanDTO.class)
+				.addMappings(mapper -> mapper.map(Loan::getCustomerEmail, LoanDTO::setEmail))
+				.implicitMappings();
+		return modelMapper;
 	}
 
 	public static void main(String[] args) {
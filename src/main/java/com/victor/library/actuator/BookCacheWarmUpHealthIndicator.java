@@ -0,0 +1,30 @@
+package com.victor.library.actuator;
+
+import com.victor.library.service.BookCacheWarmUpService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Part of the readiness group: out of service until the book cache preload is over,
+ * whether it succeeded or not.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookCacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final BookCacheWarmUpService warmUpService;
+
+    @Override
+    public Health health() {
+        BookCacheWarmUpService.State state = warmUpService.getState();
+        Health.Builder health = state == BookCacheWarmUpService.State.PENDING || state == BookCacheWarmUpService.State.WARMING
+                ? Health.outOfService()
+                : Health.up();
+        return health
+                .withDetail("state", state)
+                .withDetail("warmedUp", warmUpService.getWarmedUp())
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.victor.library.actuator;
+
+import com.victor.library.service.DatabaseBackupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "backup")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.h2.backup.enabled", havingValue = "true")
+public class DatabaseBackupEndpoint {
+
+    private final DatabaseBackupService databaseBackupService;
+
+    @ReadOperation
+    public List<Map<String, Object>> backups() throws IOException {
+        List<Map<String, Object>> backups = new ArrayList<>();
+        for (Path backup : databaseBackupService.list()) {
+            backups.add(describe(backup));
+        }
+        return backups;
+    }
+
+    @WriteOperation
+    public Map<String, Object> backup() throws IOException {
+        return describe(databaseBackupService.backup());
+    }
+
+    private Map<String, Object> describe(Path backup) throws IOException {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("file", backup.getFileName().toString());
+        details.put("size", Files.size(backup));
+        details.put("lastModified", Files.getLastModifiedTime(backup).toInstant());
+        return details;
+    }
+}
@@ -0,0 +1,178 @@
+package com.victor.library.actuator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Starts, stops and dumps flight recordings on demand. Every recording is bounded in
+ * duration and size, and only a few can exist at a time, so a forgotten recording
+ * cannot fill the disk.
+ *
+ * <pre>
+ * POST   /actuator/jfr       {"duration": "PT2M"}  starts a recording
+ * GET    /actuator/jfr                             lists the recordings
+ * POST   /actuator/jfr/{id}                        stops a recording
+ * GET    /actuator/jfr/{id}                        dumps a recording as a .jfr file, deleted once sent
+ * DELETE /actuator/jfr/{id}                        discards a recording
+ * </pre>
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private static final String EVENTS = "com.victor.library.";
+
+    @Value("${application.jfr.settings:default}")
+    private String settings = "default";
+
+    @Value("${application.jfr.max-duration:10m}")
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    @Value("${application.jfr.max-size:52428800}")
+    private long maxSize = 52428800;
+
+    @Value("${application.jfr.max-recordings:2}")
+    private int maxRecordings = 2;
+
+    @Value("${application.jfr.dump-directory:${java.io.tmpdir}}")
+    private String dumpDirectory = System.getProperty("java.io.tmpdir");
+
+    @ReadOperation
+    public List<Map<String, Object>> recordings() {
+        return ownRecordings().stream()
+                .map(this::describe)
+                .collect(Collectors.toList());
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String name, @Nullable Duration duration) {
+        if(!FlightRecorder.isAvailable()) {
+            throw new InvalidEndpointRequestException("Flight recorder is not available in this JVM", "JFR unavailable");
+        }
+        if(ownRecordings().size() >= maxRecordings) {
+            throw new InvalidEndpointRequestException("Already " + maxRecordings + " recordings, delete one first", "Too many recordings");
+        }
+        Duration bounded = duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+
+        Recording recording = new Recording(configuration());
+        recording.setName(EVENTS + (name != null ? name : "recording"));
+        recording.setDuration(bounded);
+        recording.setMaxSize(maxSize);
+        recording.setToDisk(true);
+        // the application events are always on, whatever the settings say
+        recording.enable(EVENTS + "LoanSave");
+        recording.enable(EVENTS + "BookLookup");
+        recording.enable(EVENTS + "LateLoanScanChunk");
+        recording.enable(EVENTS + "MailSend");
+        recording.start();
+        return describe(recording);
+    }
+
+    @WriteOperation
+    public Map<String, Object> stop(@Selector long id) {
+        Recording recording = find(id);
+        if(recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return describe(recording);
+    }
+
+    @ReadOperation
+    public Resource dump(@Selector long id) {
+        Recording recording = find(id);
+        // a name of its own, so concurrent dumps of one recording do not share a file
+        Path file = Paths.get(dumpDirectory, "library-" + id + "-" + UUID.randomUUID() + ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        }
+        // the file is only there to be streamed once, it goes away when the response is written
+        return new FileSystemResource(file) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+        };
+    }
+
+    @DeleteOperation
+    public void close(@Selector long id) {
+        find(id).close();
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // the dump failed already, a leftover file is the lesser problem
+        }
+    }
+
+    private Configuration configuration() {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException("Unknown recording settings " + settings, "Unknown settings");
+        }
+    }
+
+    private List<Recording> ownRecordings() {
+        if(!FlightRecorder.isAvailable()) {
+            return Collections.emptyList();
+        }
+        // recordings started with -XX:StartFlightRecording or jcmd are not ours to stop
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getName().startsWith(EVENTS))
+                .collect(Collectors.toList());
+    }
+
+    private Recording find(long id) {
+        return ownRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst()
+                .orElseThrow(() -> new InvalidEndpointRequestException("No recording " + id, "Unknown recording"));
+    }
+
+    private Map<String, Object> describe(Recording recording) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("id", recording.getId());
+        details.put("name", recording.getName());
+        details.put("state", recording.getState());
+        details.put("startTime", recording.getStartTime());
+        details.put("duration", recording.getDuration());
+        details.put("maxSize", recording.getMaxSize());
+        details.put("size", recording.getSize());
+        return details;
+    }
+}
@@ -0,0 +1,56 @@
+package com.victor.library.actuator;
+
+import com.victor.library.service.support.LatencyRecorder;
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of each endpoint split by phase, in milliseconds, since startup or the last
+ * reset.
+ */
+@Component
+@Endpoint(id = "latency")
+@ConditionalOnProperty(name = "application.latency.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LatencyEndpoint {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LatencyRecorder latencyRecorder;
+
+    @ReadOperation
+    public Map<String, Map<String, Map<String, Object>>> latency() {
+        Map<String, Map<String, Map<String, Object>>> endpoints = new LinkedHashMap<>();
+        latencyRecorder.snapshot().forEach((endpoint, phases) -> {
+            Map<String, Map<String, Object>> summaries = new LinkedHashMap<>();
+            phases.forEach((phase, histogram) -> summaries.put(phase.name().toLowerCase(), summary(histogram)));
+            endpoints.put(endpoint, summaries);
+        });
+        return endpoints;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        latencyRecorder.reset();
+    }
+
+    private Map<String, Object> summary(Histogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("mean", histogram.getMean() / MICROS_PER_MILLI);
+        summary.put("p50", histogram.getValueAtPercentile(50) / MICROS_PER_MILLI);
+        summary.put("p90", histogram.getValueAtPercentile(90) / MICROS_PER_MILLI);
+        summary.put("p99", histogram.getValueAtPercentile(99) / MICROS_PER_MILLI);
+        summary.put("p999", histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+        summary.put("max", histogram.getMaxValue() / MICROS_PER_MILLI);
+        return summary;
+    }
+}
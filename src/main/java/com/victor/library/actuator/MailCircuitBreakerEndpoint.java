@@ -0,0 +1,31 @@
+package com.victor.library.actuator;
+
+import com.victor.library.model.repository.PendingMailRepository;
+import com.victor.library.service.support.CircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "mailcircuitbreaker")
+@RequiredArgsConstructor
+public class MailCircuitBreakerEndpoint {
+
+    private final CircuitBreaker mailCircuitBreaker;
+    private final PendingMailRepository pendingMailRepository;
+
+    @ReadOperation
+    public Map<String, Object> circuitBreaker() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("name", mailCircuitBreaker.getName());
+        details.put("state", mailCircuitBreaker.getState());
+        details.put("consecutiveFailures", mailCircuitBreaker.getConsecutiveFailures());
+        details.put("openedAt", mailCircuitBreaker.getOpenedAt());
+        details.put("pendingMails", pendingMailRepository.count());
+        return details;
+    }
+}
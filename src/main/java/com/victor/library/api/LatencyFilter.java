@@ -0,0 +1,36 @@
+package com.victor.library.api;
+
+import com.victor.library.service.support.LatencyRecorder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Opens and closes the latency timings of a request. Requests are grouped by method
+ * and handler pattern, so path variables do not create one entry per id.
+ */
+public class LatencyFilter extends OncePerRequestFilter {
+
+    private final LatencyRecorder recorder;
+
+    public LatencyFilter(LatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        recorder.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            recorder.end(pattern != null ? request.getMethod() + " " + pattern : null);
+        }
+    }
+}
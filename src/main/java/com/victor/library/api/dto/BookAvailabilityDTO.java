@@ -0,0 +1,18 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityDTO {
+    private Long bookId;
+
+    private Boolean available;
+
+    private Long openLoanId;
+}
@@ -0,0 +1,21 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityRequestDTO {
+
+    @NotEmpty
+    @Size(max = 200)
+    private List<String> isbns;
+}
@@ -22,4 +22,8 @@ public class BookDTO {
 
     @NotEmpty
     private String isbn;
+
+    private Boolean available;
+
+    private Long totalLoans;
 }
@@ -0,0 +1,24 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a batch lookup, in the position of the requested key. A key without a
+ * book comes back with found false and no book.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupDTO {
+    private Long id;
+
+    private String isbn;
+
+    private boolean found;
+
+    private BookDTO book;
+}
@@ -0,0 +1,19 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupRequestDTO {
+
+    @NotEmpty
+    private List<String> isbns;
+}
@@ -0,0 +1,56 @@
+package com.victor.library.api.dto;
+
+import com.victor.library.model.entity.Loan;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LateLoanNoticeDTO {
+    private Long customerId;
+
+    private String customer;
+
+    private String email;
+
+    private List<Loan> loans;
+
+    /**
+     * Groups loans ordered by customer into one notice per customer. Loans without a
+     * registered customer are grouped by their e-mail, and loans without any e-mail are
+     * skipped since there is nobody to notify.
+     */
+    public static List<LateLoanNoticeDTO> groupByCustomer(List<Loan> loans) {
+        // rows come ordered by customer, so each customer is one contiguous run
+        List<LateLoanNoticeDTO> notices = new ArrayList<>();
+        LateLoanNoticeDTO current = null;
+        for (Loan loan : loans) {
+            Long customerId = loan.getBorrower() != null ? loan.getBorrower().getId() : null;
+            String email = loan.getBorrower() != null ? loan.getBorrower().getEmail() : loan.getCustomerEmail();
+            if(email == null) {
+                continue;
+            }
+            if(current == null
+                    || !Objects.equals(current.getCustomerId(), customerId)
+                    || !current.getEmail().equals(email)) {
+                current = LateLoanNoticeDTO.builder()
+                        .customerId(customerId)
+                        .customer(loan.getBorrower() != null ? loan.getBorrower().getName() : loan.getCustomer())
+                        .email(email)
+                        .loans(new ArrayList<>())
+                        .build();
+                notices.add(current);
+            }
+            current.getLoans().add(loan);
+        }
+        return notices;
+    }
+}
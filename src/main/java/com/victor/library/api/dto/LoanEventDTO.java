@@ -0,0 +1,46 @@
+package com.victor.library.api.dto;
+
+import com.victor.library.model.entity.LoanEventLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEventDTO {
+
+    /**
+     * Position in the event stream, the cursor a subscriber resumes after.
+     */
+    private Long id;
+
+    private String type;
+
+    private Long loanId;
+
+    private Long bookId;
+
+    private Long customerId;
+
+    private LocalDate loanDate;
+
+    private LocalDateTime createdAt;
+
+    public static LoanEventDTO of(LoanEventLog log) {
+        return LoanEventDTO.builder()
+                .id(log.getSequence())
+                .type(log.getType())
+                .loanId(log.getLoanId())
+                .bookId(log.getBookId())
+                .customerId(log.getCustomerId())
+                .loanDate(log.getLoanDate())
+                .createdAt(log.getCreatedAt())
+                .build();
+    }
+}
@@ -4,6 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE;
 
 @Data
 @Builder
@@ -12,4 +17,12 @@ import lombok.NoArgsConstructor;
 public class LoanFilterDTO {
     private String isbn;
     private String customer;
+
+    @DateTimeFormat(iso = DATE)
+    private LocalDate loanDateFrom;
+
+    @DateTimeFormat(iso = DATE)
+    private LocalDate loanDateTo;
+
+    private Boolean returned;
 }
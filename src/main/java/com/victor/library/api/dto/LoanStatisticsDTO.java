@@ -0,0 +1,27 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanStatisticsDTO {
+
+    private Long openLoans;
+
+    private Long overdueLoans;
+
+    private LocalDate overdueAsOf;
+
+    private LocalDateTime reconciledAt;
+
+    private Map<LocalDate, Long> loansPerDay;
+}
@@ -0,0 +1,52 @@
+package com.victor.library.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lean page envelope returned by the listing endpoints instead of serializing
+ * {@link org.springframework.data.domain.PageImpl} with its pageable and sort.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PageResponse<T> {
+    private List<T> content;
+
+    private int number;
+
+    private int size;
+
+    private Long totalElements;
+
+    /**
+     * Whether another page follows, given instead of the total when it was not counted.
+     */
+    private Boolean hasNext;
+
+    public static <S, T> PageResponse<T> of(Slice<S> slice, Function<S, T> mapper) {
+        List<T> content = slice.getContent().stream()
+                .map(mapper)
+                .collect(Collectors.toList());
+
+        boolean counted = slice instanceof Page;
+        return PageResponse.<T>builder()
+                .content(content)
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .totalElements(counted ? ((Page<S>) slice).getTotalElements() : null)
+                .hasNext(counted ? null : slice.hasNext())
+                .build();
+    }
+}
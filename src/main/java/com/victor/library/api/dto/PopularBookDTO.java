@@ -0,0 +1,21 @@
+package com.victor.library.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularBookDTO {
+
+    private Long bookId;
+
+    private String isbn;
+
+    private String title;
+
+    private Long loans;
+}
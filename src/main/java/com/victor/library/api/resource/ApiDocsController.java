@@ -0,0 +1,31 @@
+package com.victor.library.api.resource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Serves the API documentation generated at build time by {@code ApiDocsGenerator}
+ * in place of springfox, which is switched off in the prod profile.
+ */
+@RestController
+@Profile("prod")
+public class ApiDocsController {
+
+    @Value("${application.api-docs.location}")
+    private Resource apiDocs;
+
+    @GetMapping(value = "/v2/api-docs", produces = APPLICATION_JSON_VALUE)
+    public Resource apiDocs() {
+        if(!apiDocs.exists()) {
+            throw new ResponseStatusException(NOT_FOUND, "API documentation was not generated for this build");
+        }
+        return apiDocs;
+    }
+}
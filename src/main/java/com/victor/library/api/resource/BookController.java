@@ -1,31 +1,52 @@
 package com.victor.library.api.resource;
 
+import com.victor.library.api.dto.BookAvailabilityDTO;
+import com.victor.library.api.dto.BookAvailabilityRequestDTO;
 import com.victor.library.api.dto.BookDTO;
+import com.victor.library.api.dto.BookLookupDTO;
+import com.victor.library.api.dto.BookLookupRequestDTO;
+import com.victor.library.api.dto.BookSuggestionDTO;
 import com.victor.library.api.dto.LoanDTO;
+import com.victor.library.api.dto.PageResponse;
+import com.victor.library.api.dto.PopularBookDTO;
 import com.victor.library.api.exception.ApiErrors;
 import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
 import com.victor.library.model.entity.Loan;
 import com.victor.library.service.BookService;
+import com.victor.library.service.ExportService;
 import com.victor.library.service.LoanService;
+import com.victor.library.service.PopularityService;
+import com.victor.library.service.SuggestService;
+import com.victor.library.service.support.ExportFormat;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.*;
@@ -39,6 +60,15 @@ public class BookController {
     private final BookService service;
     private final ModelMapper modelMapper;
     private final LoanService loanService;
+    private final PopularityService popularityService;
+    private final SuggestService suggestService;
+    private final ExportService exportService;
+
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,4})d");
+    private static final int MAX_POPULAR = 100;
+
+    @Value("${application.books.lookup.max-keys:200}")
+    private int maxLookupKeys = 200;
 
     @PostMapping
     @ResponseStatus(CREATED)
@@ -87,35 +117,166 @@ public class BookController {
 
     @GetMapping
     @ApiOperation("Find books by params")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageable) {
+    public PageResponse<BookDTO> find(BookDTO dto,
+                                      Pageable pageable,
+                                      @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal) {
         Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(filter, pageable);
-        List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
-                .collect(Collectors.toList());
+        Slice<Book> result = service.find(filter, pageable, withTotal);
 
-        return new PageImpl<BookDTO>(list, pageable, result.getTotalElements());
+        return PageResponse.of(result, entity -> modelMapper.map(entity, BookDTO.class));
+    }
+
+    @GetMapping(params = "ids")
+    @ApiOperation("Get many books by id, in the order of the ids")
+    public List<BookLookupDTO> getByIds(@RequestParam("ids") List<Long> ids) {
+        checkLookupSize(ids.size());
+        if(ids.contains(null)) {
+            throw new ResponseStatusException(BAD_REQUEST, "Ids must be numbers");
+        }
+        Map<Long, Book> books = service.getBooksByIds(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity(), (first, second) -> first));
+
+        List<BookLookupDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = books.get(id);
+            result.add(book != null ? found(book) : BookLookupDTO.builder().id(id).build());
+        }
+        return result;
+    }
+
+    @PostMapping("lookup")
+    @ApiOperation("Get many books by isbn, in the order of the isbns")
+    public List<BookLookupDTO> lookup(@RequestBody @Valid BookLookupRequestDTO dto) {
+        checkLookupSize(dto.getIsbns().size());
+        Map<String, Book> books = service.getBooksByIsbns(dto.getIsbns()).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity(), (first, second) -> first));
+
+        List<BookLookupDTO> result = new ArrayList<>(dto.getIsbns().size());
+        for (String isbn : dto.getIsbns()) {
+            Book book = isbn != null ? books.get(isbn) : null;
+            result.add(book != null ? found(book) : BookLookupDTO.builder().isbn(isbn).build());
+        }
+        return result;
+    }
+
+    @PostMapping("availability")
+    @ApiOperation("Get the availability of many books by isbn")
+    public Map<String, BookAvailabilityDTO> availability(@RequestBody @Valid BookAvailabilityRequestDTO dto) {
+        Map<String, Book> books = service.getBooksByIsbns(dto.getIsbns()).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity(), (first, second) -> first));
+
+        Map<String, BookAvailabilityDTO> result = new LinkedHashMap<>();
+        dto.getIsbns().stream()
+                .filter(books::containsKey)
+                .forEach(isbn -> {
+                    Book book = books.get(isbn);
+                    result.put(isbn, BookAvailabilityDTO.builder()
+                            .bookId(book.getId())
+                            .available(book.getAvailable())
+                            .openLoanId(book.getCurrentLoanId())
+                            .build());
+                });
+
+        return result;
+    }
+
+    @GetMapping("export")
+    @ApiOperation("Export every book matching the params as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> export(BookDTO dto,
+                                                        @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format)
+                .orElseThrow(() -> new ResponseStatusException(BAD_REQUEST, "Format must be ndjson or csv"));
+        Book filter = modelMapper.map(dto, Book.class);
+
+        StreamingResponseBody body = out -> exportService.exportBooks(filter, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @GetMapping("suggest")
+    @ApiOperation("Suggest books whose title or author words start with the query")
+    public List<BookSuggestionDTO> suggest(@RequestParam(value = "q", defaultValue = "") String query,
+                                           @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if(limit < 1 || limit > suggestService.getMaxSuggestions()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Limit must be between 1 and " + suggestService.getMaxSuggestions());
+        }
+        return suggestService.suggest(query, limit);
+    }
+
+    @GetMapping("popular")
+    @ApiOperation("Get the most loaned books of the last days")
+    public List<PopularBookDTO> popular(@RequestParam(value = "window", defaultValue = "7d") String window,
+                                        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        Matcher matcher = WINDOW.matcher(window);
+        if(!matcher.matches()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Window must be a number of days, like 7d");
+        }
+        int days = Integer.parseInt(matcher.group(1));
+        if(days < 1 || days > popularityService.getRetentionDays()) {
+            throw new ResponseStatusException(BAD_REQUEST,
+                    "Window must be between 1d and " + popularityService.getRetentionDays() + "d");
+        }
+        if(limit < 1 || limit > MAX_POPULAR) {
+            throw new ResponseStatusException(BAD_REQUEST, "Limit must be between 1 and " + MAX_POPULAR);
+        }
+
+        List<PopularBookDTO> popular = popularityService.getPopular(days, limit);
+        if(popular.isEmpty()) {
+            return popular;
+        }
+        // the ranking never hits the database; its books come from the book cache, and the
+        // ones missing there from a single query
+        List<Long> ids = popular.stream().map(PopularBookDTO::getBookId).collect(Collectors.toList());
+        Map<Long, Book> books = service.getBooksByIds(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity(), (first, second) -> first));
+        popular.forEach(dto -> {
+            Book book = books.get(dto.getBookId());
+            if(book != null) {
+                dto.setIsbn(book.getIsbn());
+                dto.setTitle(book.getTitle());
+            }
+        });
+        return popular;
     }
 
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable) {
+    public PageResponse<LoanDTO> loansByBook(@PathVariable Long id,
+                                             Pageable pageable,
+                                             @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+                                             @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
         Book book = service.getById(id).orElseThrow(
                 () -> new ResponseStatusException(NOT_FOUND)
         );
 
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
-        List<LoanDTO> list = result.getContent().stream().map(
-                loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
+        Slice<Loan> result = includeArchived
+                ? loanService.getLoanHistoryByBook(book, pageable, withTotal)
+                : loanService.getLoansByBook(book, pageable, withTotal);
 
-                    return loanDTO;
-                }
-        ).collect(Collectors.toList());
+        return PageResponse.of(result, loan -> {
+            Book loanBook = loan.getBook();
+            BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
+            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+            loanDTO.setBook(bookDTO);
 
-        return new PageImpl<LoanDTO>(list, pageable,result.getTotalElements());
+            return loanDTO;
+        });
+    }
+
+    private void checkLookupSize(int size) {
+        if(size < 1 || size > maxLookupKeys) {
+            throw new ResponseStatusException(BAD_REQUEST, "Between 1 and " + maxLookupKeys + " books can be looked up at once");
+        }
+    }
 
+    private BookLookupDTO found(Book book) {
+        return BookLookupDTO.builder()
+                .id(book.getId())
+                .isbn(book.getIsbn())
+                .found(true)
+                .book(modelMapper.map(book, BookDTO.class))
+                .build();
     }
 }
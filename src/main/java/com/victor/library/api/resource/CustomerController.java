@@ -0,0 +1,50 @@
+package com.victor.library.api.resource;
+
+import com.victor.library.api.dto.BookDTO;
+import com.victor.library.api.dto.LoanDTO;
+import com.victor.library.api.dto.PageResponse;
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.service.CustomerService;
+import com.victor.library.service.LoanService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Api("Customer API")
+public class CustomerController {
+
+    private final CustomerService service;
+    private final LoanService loanService;
+    private final ModelMapper modelMapper;
+
+    @GetMapping("{id}/loans")
+    @ApiOperation("Get the loans of a customer, newest first")
+    public PageResponse<LoanDTO> loansByCustomer(@PathVariable Long id,
+                                                 Pageable pageable,
+                                                 @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal) {
+        Customer customer = service.getById(id).orElseThrow(
+                () -> new ResponseStatusException(NOT_FOUND)
+        );
+
+        Slice<Loan> result = loanService.getLoansByCustomer(customer, pageable, withTotal);
+
+        return PageResponse.of(result, loan -> {
+            BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
+            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+            loanDTO.setBook(bookDTO);
+
+            return loanDTO;
+        });
+    }
+}
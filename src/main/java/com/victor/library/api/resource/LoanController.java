@@ -3,21 +3,33 @@ package com.victor.library.api.resource;
 import com.victor.library.api.dto.BookDTO;
 import com.victor.library.api.dto.LoanDTO;
 import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.api.dto.LoanStatisticsDTO;
+import com.victor.library.api.dto.PageResponse;
 import com.victor.library.api.dto.ReturnedLoanDTO;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
 import com.victor.library.service.BookService;
+import com.victor.library.service.CustomerService;
+import com.victor.library.service.ExportService;
+import com.victor.library.service.LoanEventService;
 import com.victor.library.service.LoanService;
+import com.victor.library.service.LoanStatisticsService;
+import com.victor.library.service.support.ExportFormat;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -33,7 +45,11 @@ public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
+    private final CustomerService customerService;
     private final ModelMapper modelMapper;
+    private final LoanStatisticsService loanStatisticsService;
+    private final LoanEventService loanEventService;
+    private final ExportService exportService;
 
     @PostMapping
     @ResponseStatus(CREATED)
@@ -41,9 +57,16 @@ public class LoanController {
          Book book = bookService.getBookByIsbn(dto.getIsbn())
                  .orElseThrow(() -> new ResponseStatusException(BAD_REQUEST, "Book not found for passed isbn"));
 
+         Customer borrower = dto.getEmail() == null
+                 ? null
+                 : customerService.getOrCreate(dto.getCustomer(), dto.getEmail());
+
          Loan entity = Loan.builder()
                  .book(book)
+                 .isbn(book.getIsbn())
                  .customer(dto.getCustomer())
+                 .customerEmail(dto.getEmail())
+                 .borrower(borrower)
                  .loanDate(LocalDate.now())
                  .build();
 
@@ -61,20 +84,47 @@ public class LoanController {
         loanService.update(loan);
     }
 
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(LoanFilterDTO dto,
+                                                        @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format)
+                .orElseThrow(() -> new ResponseStatusException(BAD_REQUEST, "Format must be ndjson or csv"));
+
+        StreamingResponseBody body = out -> exportService.exportLoans(dto, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=loans." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @GetMapping(value = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                             @RequestParam(value = "after", required = false) Long after) {
+        // browsers resend the header on reconnect, other clients may pass the cursor themselves
+        return loanEventService.subscribe(lastEventId != null ? lastEventId : after);
+    }
+
+    @GetMapping("statistics")
+    public LoanStatisticsDTO statistics(@RequestParam(value = "days", defaultValue = "7") int days) {
+        if(days < 1 || days > loanStatisticsService.getMaxDays()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Days must be between 1 and " + loanStatisticsService.getMaxDays());
+        }
+        return loanStatisticsService.getStatistics(days);
+    }
+
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest) {
-        Page<Loan> result = loanService.find(dto, pageRequest);
-        List<LoanDTO> loans = result
-            .getContent()
-            .stream()
-            .map( entity ->  {
-                Book book = entity.getBook();
-                BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                loanDTO.setBook(bookDTO);
-
-                return loanDTO;
-            }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
+    public PageResponse<LoanDTO> find(LoanFilterDTO dto,
+                                      Pageable pageRequest,
+                                      @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal) {
+        Slice<Loan> result = loanService.find(dto, pageRequest, withTotal);
+        return PageResponse.of(result, entity -> {
+            Book book = entity.getBook();
+            BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
+            LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
+            loanDTO.setBook(bookDTO);
+
+            return loanDTO;
+        });
     }
 }
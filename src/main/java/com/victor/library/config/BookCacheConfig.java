@@ -0,0 +1,18 @@
+package com.victor.library.config;
+
+import com.victor.library.service.support.BookCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BookCacheConfig {
+
+    @Bean
+    public BookCache bookCache(@Value("${application.cache.books.maximum-size}") long maximumSize,
+                               @Value("${application.cache.books.expire-after-write:10m}") Duration expireAfterWrite) {
+        return new BookCache("books", maximumSize, expireAfterWrite);
+    }
+}
@@ -0,0 +1,34 @@
+package com.victor.library.config;
+
+import com.victor.library.api.LatencyFilter;
+import com.victor.library.service.support.LatencyAspect;
+import com.victor.library.service.support.LatencyRecorder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(name = "application.latency.enabled", havingValue = "true", matchIfMissing = true)
+public class LatencyConfig {
+
+    @Bean
+    public LatencyRecorder latencyRecorder() {
+        return new LatencyRecorder();
+    }
+
+    @Bean
+    public LatencyAspect latencyAspect(LatencyRecorder latencyRecorder) {
+        return new LatencyAspect(latencyRecorder);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LatencyFilter> latencyFilter(LatencyRecorder latencyRecorder) {
+        FilterRegistrationBean<LatencyFilter> registration = new FilterRegistrationBean<>(new LatencyFilter(latencyRecorder));
+        registration.addUrlPatterns("/api/*");
+        // outermost, so the total covers the other filters too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,26 @@
+package com.victor.library.config;
+
+import com.victor.library.service.support.CircuitBreaker;
+import com.victor.library.service.support.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class MailConfig {
+
+    @Bean
+    public CircuitBreaker mailCircuitBreaker(
+            @Value("${application.mail.circuit-breaker.failure-threshold}") int failureThreshold,
+            @Value("${application.mail.circuit-breaker.open-duration}") Duration openDuration) {
+        return new CircuitBreaker("mail", failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    @Bean
+    public RateLimiter mailRateLimiter(@Value("${application.mail.sends-per-second}") double sendsPerSecond) {
+        return new RateLimiter("mail", sendsPerSecond, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,25 @@
+package com.victor.library.config;
+
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.service.support.SingleFlight;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+
+@Configuration
+public class SingleFlightConfig {
+
+    @Bean
+    public SingleFlight<Long, Optional<Book>> bookByIdFlight() {
+        return new SingleFlight<>("book.getById");
+    }
+
+    @Bean
+    public SingleFlight<List<Object>, Slice<Loan>> loansByBookFlight() {
+        return new SingleFlight<>("loan.getLoansByBook");
+    }
+}
@@ -1,7 +1,12 @@
 package com.victor.library.config;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -9,10 +14,15 @@ import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.lang.reflect.Field;
+import java.util.List;
+
 @EnableSwagger2
 @Configuration
+@Profile("!prod")
 public class SwaggerConfig {
 
     @Bean
@@ -25,6 +35,32 @@ public class SwaggerConfig {
                 .apiInfo(apiInfo());
     }
 
+    /**
+     * Springfox 3 reads the ant patterns of every handler mapping, but since Boot 2.6 the
+     * actuator endpoints are mapped with path patterns and have none, which fails the
+     * startup with a NullPointerException. Those mappings are left out of the scan.
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if(bean instanceof WebMvcRequestHandlerProvider) {
+                    handlerMappings(bean).removeIf(mapping -> mapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<RequestMappingInfoHandlerMapping> handlerMappings(Object bean) {
+                Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+                ReflectionUtils.makeAccessible(field);
+                return (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+            }
+        };
+    }
+
     private ApiInfo apiInfo() {
         return new ApiInfoBuilder()
                 .title("Library API")
@@ -0,0 +1,25 @@
+package com.victor.library.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exits as soon as the application is ready, so a JVM started with
+ * {@code -XX:ArchiveClassesAtExit} dumps an AppCDS archive of every class loaded
+ * during startup.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "application.startup.training-run", havingValue = "true")
+public class TrainingRunConfig implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Training run finished, exiting so the class data archive can be written");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -13,11 +13,14 @@ import static javax.persistence.FetchType.LAZY;
 import static javax.persistence.GenerationType.IDENTITY;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "tb_book")
+@Table(name = "tb_book", indexes = {
+        @Index(name = "idx_book_isbn", columnList = "ds_isbn"),
+        @Index(name = "idx_book_available", columnList = "fl_available")
+})
 public class Book {
 
     @Id
@@ -34,6 +37,25 @@ public class Book {
     @Column(name = "ds_isbn")
     private String isbn;
 
+    // written only by the loan updates of BookRepository: a save of a cached copy
+    // would put back the loan state it was read with
+    @Column(name = "fl_available", updatable = false)
+    private Boolean available;
+
+    @Column(name = "id_current_loan", updatable = false)
+    private Long currentLoanId;
+
+    @Column(name = "qt_total_loans", updatable = false)
+    private Long totalLoans;
+
     @OneToMany(mappedBy = "book", fetch = LAZY)
     private List<Loan> loans;
+
+    /**
+     * Detached copy of the book without its loans, for handing one loaded book to callers
+     * that must not share the instance of another persistence context.
+     */
+    public Book copy() {
+        return toBuilder().loans(null).build();
+    }
 }
@@ -0,0 +1,32 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_customer", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_customer_email", columnNames = "ds_email")
+})
+public class Customer {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "nm_name", length = 100)
+    private String name;
+
+    @Column(name = "ds_email", nullable = false)
+    private String email;
+}
@@ -4,18 +4,28 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
 import java.time.LocalDate;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_loan_book", columnList = "id_book"),
+        @Index(name = "idx_loan_customer", columnList = "customer"),
+        @Index(name = "idx_loan_customer_date", columnList = "id_customer, loan_date"),
+        @Index(name = "idx_loan_date", columnList = "loan_date"),
+        @Index(name = "idx_loan_returned_date", columnList = "returned, loan_date"),
+        @Index(name = "idx_loan_isbn_date", columnList = "ds_isbn, loan_date")
+})
 public class Loan {
 
+    public static final int LOAN_DAYS = 4;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column
@@ -27,13 +37,63 @@ public class Loan {
     @Column(name = "customer_email")
     private String customerEmail;
 
+    @JoinColumn(name = "id_customer")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Customer borrower;
+
     @JoinColumn(name = "id_book")
     @ManyToOne
     private Book book;
 
-    @Column
+    /**
+     * Isbn of the book, copied at creation so the isbn filters are answered by the loan
+     * table alone. The isbn of a book never changes, so neither does this column.
+     */
+    @Column(name = "ds_isbn", updatable = false)
+    private String isbn;
+
+    @Column(name = "loan_date")
     private LocalDate loanDate;
 
     @Column
     private Boolean returned;
+
+    /**
+     * Latest loan date that is overdue on the given day. The late notices, the late loan
+     * listing and the overdue counter all take their boundary from here.
+     */
+    public static LocalDate overdueThrough(LocalDate today) {
+        return today.minusDays(LOAN_DAYS);
+    }
+
+    /**
+     * Loan date of the loans whose period ends on the given day.
+     */
+    public static LocalDate loanDateDueOn(LocalDate dueDate) {
+        return dueDate.minusDays(LOAN_DAYS);
+    }
+
+    /**
+     * Detached copy of the loan and its book. A borrower that was never loaded is reduced
+     * to its id, since loading it would go through the session of another caller.
+     */
+    public Loan copy() {
+        Customer borrowerCopy = null;
+        if(borrower != null) {
+            borrowerCopy = Hibernate.isInitialized(borrower)
+                    ? borrower.toBuilder().build()
+                    : Customer.builder().id(borrower.getId()).build();
+        }
+        return toBuilder()
+                .book(book != null ? book.copy() : null)
+                .borrower(borrowerCopy)
+                .build();
+    }
+
+    @PrePersist
+    void copyIsbn() {
+        if(isbn == null && book != null) {
+            isbn = book.getIsbn();
+        }
+    }
 }
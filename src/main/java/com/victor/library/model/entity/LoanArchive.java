@@ -0,0 +1,73 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_archive", indexes = {
+        @Index(name = "idx_loan_archive_book", columnList = "id_book, loan_date")
+})
+public class LoanArchive implements Persistable<Long> {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "id_customer")
+    private Long customerId;
+
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column(name = "ds_isbn")
+    private String isbn;
+
+    @Column(name = "loan_date")
+    private LocalDate loanDate;
+
+    @Column
+    private Boolean returned;
+
+    @Column
+    private LocalDateTime archivedAt;
+
+    public static LoanArchive of(Loan loan, LocalDateTime archivedAt) {
+        return LoanArchive.builder()
+                .id(loan.getId())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .customerId(loan.getBorrower() != null ? loan.getBorrower().getId() : null)
+                .bookId(loan.getBook().getId())
+                .isbn(loan.getIsbn())
+                .loanDate(loan.getLoanDate())
+                .returned(loan.getReturned())
+                .archivedAt(archivedAt)
+                .build();
+    }
+
+    /**
+     * Archived rows keep the id of the loan they came from and are only ever inserted,
+     * so saving them never needs the select that merge would do.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Loans made on a day, striped like {@link LoanStatistics}; the loans of the day are
+ * the sum over its stripes.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(LoanDailyCount.Key.class)
+@Table(name = "tb_loan_daily_count")
+public class LoanDailyCount {
+
+    @Id
+    @Column(name = "dt_day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "nr_stripe")
+    private Integer stripe;
+
+    @Column(name = "qt_loans")
+    private Long loans;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private LocalDate day;
+
+        private Integer stripe;
+    }
+}
@@ -0,0 +1,58 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * Recent loan changes, kept so that event stream subscribers can resume after a
+ * reconnect. Identity ids follow insert order, which concurrent transactions can commit
+ * out of, so the position in the stream is the sequence given once the change has
+ * committed. Old rows are pruned.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_loan_event", indexes = {
+        @Index(name = "idx_loan_event_sequence", columnList = "nr_sequence", unique = true)
+})
+public class LoanEventLog {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "ds_type", length = 20)
+    private String type;
+
+    @Column(name = "id_loan")
+    private Long loanId;
+
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column(name = "id_customer")
+    private Long customerId;
+
+    @Column(name = "dt_loan")
+    private LocalDate loanDate;
+
+    @Column(name = "dt_created")
+    private LocalDateTime createdAt;
+
+    /**
+     * Position in the event stream, null until the loan transaction has committed.
+     */
+    @Column(name = "nr_sequence")
+    private Long sequence;
+}
@@ -0,0 +1,47 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Running loan counters, spread over a fixed number of stripe rows so that concurrent
+ * loans do not queue on a single row lock. The counts are the sum over the stripes.
+ * Loans dated up to {@code overdueThrough}, kept equal on every stripe, are counted as
+ * overdue; the daily roll forward moves that date as loans become late.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_loan_statistics")
+public class LoanStatistics {
+
+    /**
+     * Stripe that takes the loans counted by the roll forward and the reconciliation,
+     * and keeps the time of the last reconciliation.
+     */
+    public static final Long HEAD = 0L;
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(name = "qt_open")
+    private Long openLoans;
+
+    @Column(name = "qt_overdue")
+    private Long overdueLoans;
+
+    @Column(name = "dt_overdue_through")
+    private LocalDate overdueThrough;
+
+    @Column(name = "dt_reconciled")
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,40 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_pending_mail")
+public class PendingMail {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "ds_recipients", length = 2000)
+    private String recipients;
+
+    @Column(name = "ds_subject")
+    private String subject;
+
+    @Column(name = "ds_message", length = 4000)
+    private String message;
+
+    @Column(name = "qt_attempts")
+    private Integer attempts;
+
+    @Column(name = "dt_created")
+    private LocalDateTime createdAt;
+}
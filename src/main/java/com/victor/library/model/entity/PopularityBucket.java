@@ -0,0 +1,39 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_popularity_bucket", indexes = {
+        @Index(name = "idx_popularity_bucket_day", columnList = "dt_day")
+})
+public class PopularityBucket {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "dt_day")
+    private LocalDate day;
+
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column(name = "qt_loans")
+    private Long loans;
+
+    @Column(name = "qt_error")
+    private Long error;
+}
@@ -0,0 +1,63 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * Progress of one partition of a batch scan. A partition covers the ids in
+ * (lastId, highId]; a partition without bounds holds the rows that have no id to
+ * range over and is processed in a single step.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_scan_checkpoint", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_scan_checkpoint", columnNames = {"ds_scan", "dt_run", "nr_partition"})
+})
+public class ScanCheckpoint {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "ds_scan", length = 50)
+    private String scan;
+
+    @Column(name = "dt_run")
+    private LocalDate runDate;
+
+    @Column(name = "nr_partition")
+    private Integer partitionIndex;
+
+    @Column(name = "id_low")
+    private Long lowId;
+
+    @Column(name = "id_high")
+    private Long highId;
+
+    @Column(name = "id_last")
+    private Long lastId;
+
+    @Column(name = "fl_done")
+    private Boolean done;
+
+    @Column(name = "dt_updated")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "ds_owner", length = 36)
+    private String owner;
+
+    @Column(name = "dt_claimed_until")
+    private LocalDateTime claimedUntil;
+}
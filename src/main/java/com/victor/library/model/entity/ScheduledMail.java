@@ -0,0 +1,42 @@
+package com.victor.library.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_scheduled_mail", indexes = {
+        @Index(name = "idx_scheduled_mail_at", columnList = "dt_scheduled")
+})
+public class ScheduledMail {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(name = "ds_recipients", length = 2000)
+    private String recipients;
+
+    @Column(name = "ds_subject")
+    private String subject;
+
+    @Column(name = "ds_message", length = 4000)
+    private String message;
+
+    @Column(name = "dt_scheduled")
+    private LocalDateTime scheduledAt;
+
+    @Column(name = "dt_created")
+    private LocalDateTime createdAt;
+}
@@ -2,11 +2,58 @@ package com.victor.library.model.repository;
 
 import com.victor.library.model.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-public interface  BookRepository extends JpaRepository<Book, Long> {
+public interface  BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    List<Book> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Books matching the filter of the book search, read through a database cursor in id
+     * order. Text criteria are lower case LIKE patterns. Must be consumed and closed inside
+     * a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(" select b from Book b " +
+            "where ( :title is null or lower(b.title) like :title escape '\\' ) " +
+            "and ( :author is null or lower(b.author) like :author escape '\\' ) " +
+            "and ( :isbn is null or lower(b.isbn) like :isbn escape '\\' ) " +
+            "and ( :available is null or b.available = :available ) " +
+            "order by b.id ")
+    Stream<Book> streamMatching(@Param("title") String title,
+                                @Param("author") String author,
+                                @Param("isbn") String isbn,
+                                @Param("available") Boolean available);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = " update Book b set b.available = false, b.currentLoanId = :loanId, " +
+            "b.totalLoans = coalesce(b.totalLoans, 0) + 1 " +
+            "where b.id = :bookId and ( b.available is null or b.available = true ) ")
+    int markAsLoaned(@Param("bookId") Long bookId, @Param("loanId") Long loanId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = " update Book b set b.available = true, b.currentLoanId = null " +
+            "where b.id = :bookId and b.currentLoanId = :loanId ")
+    int markAsReturned(@Param("bookId") Long bookId, @Param("loanId") Long loanId);
 }
@@ -0,0 +1,14 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Books matching an example, without the count query of a page.
+     */
+    Slice<Book> findSlice(Example<Book> example, Pageable pageable);
+}
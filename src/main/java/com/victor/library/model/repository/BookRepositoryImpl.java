@@ -0,0 +1,22 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Book> findSlice(Example<Book> example, Pageable pageable) {
+        return SliceQueries.find(entityManager, Book.class,
+                (root, query, cb) -> QueryByExamplePredicateBuilder.getPredicate(root, cb, example), pageable);
+    }
+}
@@ -0,0 +1,10 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    Optional<Customer> findByEmail(String email);
+}
@@ -0,0 +1,7 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.LoanArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long> {
+}
@@ -0,0 +1,27 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.LoanDailyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanDailyCountRepository extends JpaRepository<LoanDailyCount, LoanDailyCount.Key> {
+
+    List<LoanDailyCount> findByDayBetween(LocalDate from, LocalDate to);
+
+    @Query(" select d.day as loanDate, sum(d.loans) as loans from LoanDailyCount d " +
+            "where d.day between :from and :to group by d.day ")
+    List<LoanDayCount> sumByDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(" update LoanDailyCount d set d.loans = d.loans + :delta where d.day = :day and d.stripe = :stripe ")
+    int increment(@Param("day") LocalDate day, @Param("stripe") int stripe, @Param("delta") long delta);
+
+    @Modifying
+    @Query(" delete from LoanDailyCount d where d.day < :before ")
+    int deleteByDayBefore(@Param("before") LocalDate before);
+}
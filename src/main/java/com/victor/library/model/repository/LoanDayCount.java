@@ -0,0 +1,13 @@
+package com.victor.library.model.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Number of loans made on a day, counted from the loan table or summed over the
+ * daily count stripes.
+ */
+public interface LoanDayCount {
+    LocalDate getLoanDate();
+
+    Long getLoans();
+}
@@ -0,0 +1,36 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.LoanEventLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface LoanEventLogRepository extends JpaRepository<LoanEventLog, Long> {
+
+    List<LoanEventLog> findBySequenceGreaterThanOrderBySequenceAsc(Long sequence, Pageable pageable);
+
+    List<LoanEventLog> findBySequenceIsNullOrderByIdAsc();
+
+    @Query(" select max(e.sequence) from LoanEventLog e ")
+    Long findMaxSequence();
+
+    /**
+     * Gives a committed event its place in the stream, unless it already has one.
+     */
+    @Transactional
+    @Modifying
+    @Query(" update LoanEventLog e set e.sequence = :sequence where e.id = :id and e.sequence is null ")
+    int assignSequence(@Param("id") Long id, @Param("sequence") Long sequence);
+
+    @Query(" select max(e.id) from LoanEventLog e ")
+    Long findMaxId();
+
+    @Modifying
+    @Query(" delete from LoanEventLog e where e.id <= :id ")
+    int deleteUpTo(@Param("id") Long id);
+}
@@ -0,0 +1,21 @@
+package com.victor.library.model.repository;
+
+import java.util.Date;
+
+/**
+ * Row of the loan history of a book, read either from the loan table or from the
+ * loan archive.
+ */
+public interface LoanHistory {
+    Long getId();
+
+    String getCustomer();
+
+    String getCustomerEmail();
+
+    Date getLoanDate();
+
+    Boolean getReturned();
+
+    Boolean getArchived();
+}
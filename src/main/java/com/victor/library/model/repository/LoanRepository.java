@@ -1,32 +1,140 @@
 package com.victor.library.model.repository;
 
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, JpaSpecificationExecutor<Loan>, LoanRepositoryCustom {
+
+    /**
+     * Loans of a book together with its archived ones, newest first.
+     */
+    String HISTORY_BY_BOOK = " select l.id as id, l.customer as customer, l.customer_email as customerEmail, " +
+            "l.loan_date as loanDate, l.returned as returned, false as archived " +
+            "from loan l where l.id_book = :bookId " +
+            "union all " +
+            "select a.id, a.customer, a.customer_email, a.loan_date, a.returned, true " +
+            "from loan_archive a where a.id_book = :bookId " +
+            "order by loanDate desc, id desc ";
 
     @Query(value = " select case when ( count(l.id) > 0 ) then true else false end " +
             "from Loan l where l.book = :book and ( l.returned is null or l.returned is false ) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query(value = " select l from Loan as l join l.book as b where b.isbn = :isbn " +
-            "or l.customer = :customer ")
-    Page<Loan> findByBookIsbnOrCustomer(
-            @Param("isbn") String isbn,
-            @Param("customer") String customer,
-            Pageable pageable
-    );
-
     Page<Loan> findByBook(Book book, Pageable pageable);
 
+    Slice<Loan> findSliceByBook(Book book, Pageable pageable);
+
+    @Query(value = " select l from Loan l join fetch l.book where l.borrower = :borrower ",
+            countQuery = " select count(l) from Loan l where l.borrower = :borrower ")
+    Page<Loan> findByBorrower(@Param("borrower") Customer borrower, Pageable pageable);
+
+    @Query(" select l from Loan l join fetch l.book where l.borrower = :borrower ")
+    Slice<Loan> findSliceByBorrower(@Param("borrower") Customer borrower, Pageable pageable);
+
     @Query(" select l from Loan l where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false)")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    @Query(" select l from Loan l join fetch l.book left join fetch l.borrower " +
+            "where l.loanDate = :loanDate and (l.returned is null or l.returned is false) " +
+            "order by l.borrower.id, l.customerEmail ")
+    List<Loan> findOpenLoansByLoanDateOrderByCustomer(@Param("loanDate") LocalDate loanDate);
+
+    @Query(" select min(l.borrower.id) from Loan l " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) ")
+    Long findMinLateBorrowerId(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    @Query(" select max(l.borrower.id) from Loan l " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) ")
+    Long findMaxLateBorrowerId(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    /**
+     * Next customers with late loans after a given customer id, used to walk a range of
+     * customers in chunks without splitting one customer's loans across chunks.
+     */
+    @Query(" select distinct l.borrower.id from Loan l " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) " +
+            "and l.borrower.id > :afterId and l.borrower.id <= :highId " +
+            "order by l.borrower.id ")
+    List<Long> findLateBorrowerIds(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                   @Param("afterId") Long afterId,
+                                   @Param("highId") Long highId,
+                                   Pageable pageable);
+
+    @Query(" select l from Loan l join fetch l.book join fetch l.borrower " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) " +
+            "and l.borrower.id in :borrowerIds " +
+            "order by l.borrower.id, l.loanDate ")
+    List<Loan> findLateLoansByBorrowerIds(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                          @Param("borrowerIds") Collection<Long> borrowerIds);
+
+    /**
+     * First late loan of each email among the loans recorded before customers existed,
+     * after a given loan id. Those loans are walked in chunks of these ids, so the loans
+     * of one email are never split across chunks.
+     */
+    @Query(" select min(l.id) from Loan l " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) " +
+            "and l.borrower is null and l.customerEmail is not null " +
+            "group by l.customerEmail " +
+            "having min(l.id) > :afterId " +
+            "order by min(l.id) ")
+    List<Long> findFirstLateLoanIdsWithoutBorrower(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    @Query(" select l from Loan l join fetch l.book " +
+            "where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) " +
+            "and l.borrower is null " +
+            "and l.customerEmail in ( select f.customerEmail from Loan f where f.id in :firstLoanIds ) " +
+            "order by l.customerEmail, l.loanDate ")
+    List<Loan> findLateLoansWithoutBorrowerByFirstLoanIds(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                                          @Param("firstLoanIds") Collection<Long> firstLoanIds);
+
+    @Query(" select count(l) from Loan l where (l.returned is null or l.returned is false) ")
+    long countOpen();
+
+    @Query(" select count(l) from Loan l " +
+            "where l.loanDate between :from and :to and (l.returned is null or l.returned is false) ")
+    long countOpenByLoanDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(" select l.loanDate as loanDate, count(l) as loans from Loan l " +
+            "where l.loanDate between :from and :to group by l.loanDate ")
+    List<LoanDayCount> countByLoanDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(" select l.id from Loan l where l.isbn is null and l.id > :afterId order by l.id ")
+    List<Long> findIdsWithoutIsbn(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query(" update Loan l set l.isbn = ( select b.isbn from Book b where b.id = l.book.id ) " +
+            "where l.id in :ids and l.isbn is null ")
+    int copyIsbnFromBook(@Param("ids") Collection<Long> ids);
+
+    @Query(" select l from Loan l where l.returned = true and l.loanDate < :before order by l.id ")
+    List<Loan> findReturnedBefore(@Param("before") LocalDate before, Pageable pageable);
+
+    @Modifying
+    @Query(" delete from Loan l where l.id in :ids ")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = HISTORY_BY_BOOK,
+            countQuery = " select ( select count(*) from loan l where l.id_book = :bookId ) + " +
+                    "( select count(*) from loan_archive a where a.id_book = :bookId ) ",
+            nativeQuery = true)
+    Page<LoanHistory> findHistoryByBook(@Param("bookId") Long bookId, Pageable pageable);
+
+    @Query(value = HISTORY_BY_BOOK, nativeQuery = true)
+    Slice<LoanHistory> findHistorySliceByBook(@Param("bookId") Long bookId, Pageable pageable);
 }
@@ -0,0 +1,36 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+public interface LoanRepositoryCustom {
+
+    /**
+     * Loans matching a specification in id order, read through a database cursor. Must be
+     * consumed and closed inside a transaction.
+     */
+    Stream<Loan> streamAll(Specification<Loan> specification, int fetchSize);
+
+    /**
+     * Loans of the filter's book isbn or of its customer, narrowed by the other criteria
+     * that were given. Each side of the union is resolved by its own index. The page is
+     * sorted by loan date and id unless the request sorts by one of them.
+     */
+    Page<Loan> findByBookIsbnOrCustomer(LoanFilterDTO filter, Pageable pageable);
+
+    /**
+     * Same as {@link #findByBookIsbnOrCustomer(LoanFilterDTO, Pageable)} without the count.
+     */
+    Slice<Loan> findSliceByBookIsbnOrCustomer(LoanFilterDTO filter, Pageable pageable);
+
+    /**
+     * Loans matching a specification, without the count query of a page.
+     */
+    Slice<Loan> findSlice(Specification<Loan> specification, Pageable pageable);
+}
@@ -0,0 +1,156 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.exception.BusinessException;
+import com.victor.library.model.entity.Loan;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class LoanRepositoryImpl implements LoanRepositoryCustom {
+
+    private static final Map<String, String> UNION_SORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        UNION_SORT_COLUMNS.put("loanDate", "loan_date");
+        UNION_SORT_COLUMNS.put("id", "id");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Loan> streamAll(Specification<Loan> specification, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Loan> query = cb.createQuery(Loan.class);
+        Root<Loan> root = query.from(Loan.class);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public Slice<Loan> findSlice(Specification<Loan> specification, Pageable pageable) {
+        return SliceQueries.find(entityManager, Loan.class, specification, pageable);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page<Loan> findByBookIsbnOrCustomer(LoanFilterDTO filter, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        String union = isbnOrCustomer(filter, parameters);
+
+        Query query = withBook(union, pageable.getSort());
+        parameters.forEach(query::setParameter);
+        if(pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Loan> content = ((List<Object[]>) query.getResultList()).stream()
+                .map(row -> (Loan) row[0])
+                .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query count = entityManager.createNativeQuery(" select count(*) from ( " + union + ") u ");
+            parameters.forEach(count::setParameter);
+            return ((Number) count.getSingleResult()).longValue();
+        });
+    }
+
+    @Override
+    public Slice<Loan> findSliceByBookIsbnOrCustomer(LoanFilterDTO filter, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        String union = isbnOrCustomer(filter, parameters);
+
+        Query query = withBook(union, pageable.getSort());
+        parameters.forEach(query::setParameter);
+        return SliceQueries.<Object[]>slice(query, pageable).map(row -> (Loan) row[0]);
+    }
+
+    /**
+     * The union joined to the books, which are read in the same statement: mapped on its
+     * own, each loan would load its eager book with one more query.
+     */
+    private Query withBook(String union, Sort sort) {
+        Query query = entityManager.createNativeQuery(" select {l.*}, {b.*} from ( " + union + ") l " +
+                "join tb_book b on b.id = l.id_book " +
+                "order by " + orderBy(sort));
+        query.unwrap(NativeQuery.class)
+                .addEntity("l", Loan.class)
+                .addJoin("b", "l.book");
+        return query;
+    }
+
+    private String isbnOrCustomer(LoanFilterDTO filter, Map<String, Object> parameters) {
+        // only the criteria given reach the statement, so each side keeps to its index
+        StringBuilder criteria = new StringBuilder();
+        if(filter.getLoanDateFrom() != null) {
+            criteria.append("and l.loan_date >= :loanDateFrom ");
+            parameters.put("loanDateFrom", filter.getLoanDateFrom());
+        }
+        if(filter.getLoanDateTo() != null) {
+            criteria.append("and l.loan_date <= :loanDateTo ");
+            parameters.put("loanDateTo", filter.getLoanDateTo());
+        }
+        if(filter.getReturned() != null) {
+            criteria.append(filter.getReturned()
+                    ? "and l.returned = true "
+                    : "and (l.returned is null or l.returned = false) ");
+        }
+        parameters.put("isbn", filter.getIsbn());
+        parameters.put("customer", filter.getCustomer());
+
+        return " select l.* from loan l where l.ds_isbn = :isbn " + criteria +
+                "union " +
+                "select l.* from loan l where l.customer = :customer " + criteria;
+    }
+
+    private String orderBy(Sort sort) {
+        List<String> columns = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            String column = UNION_SORT_COLUMNS.get(order.getProperty());
+            if(column == null) {
+                throw new BusinessException("Loans by isbn or customer can only be sorted by "
+                        + String.join(" or ", UNION_SORT_COLUMNS.keySet()));
+            }
+            columns.add("l." + column + (order.isAscending() ? " asc" : " desc"));
+            byId |= "id".equals(column);
+        }
+        if(columns.isEmpty()) {
+            columns.add("l.loan_date asc");
+        }
+        if(!byId) {
+            // loans of the same day would otherwise come in any order from page to page
+            columns.add("l.id asc");
+        }
+        return String.join(", ", columns);
+    }
+}
@@ -0,0 +1,102 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.model.entity.Loan;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.JoinType;
+import java.time.LocalDate;
+
+/**
+ * Loan filters that only add a predicate when their value is present, so the query
+ * carries just the criteria the client asked for.
+ */
+public final class LoanSpecifications {
+
+    private LoanSpecifications() {
+    }
+
+    public static Specification<Loan> matching(LoanFilterDTO filter) {
+        return Specification.where(isbn(filter.getIsbn()))
+                .and(customer(filter.getCustomer()))
+                .and(loanDateFrom(filter.getLoanDateFrom()))
+                .and(loanDateTo(filter.getLoanDateTo()))
+                .and(returned(filter.getReturned()))
+                .and(fetchBook());
+    }
+
+    /**
+     * Same criteria as the loan search, where an isbn together with a customer means
+     * either of them, as the union query of the search does.
+     */
+    public static Specification<Loan> exporting(LoanFilterDTO filter) {
+        Specification<Loan> owner = filter.getIsbn() != null && filter.getCustomer() != null
+                ? isbnOrCustomer(filter.getIsbn(), filter.getCustomer())
+                : Specification.where(isbn(filter.getIsbn())).and(customer(filter.getCustomer()));
+
+        return Specification.where(owner)
+                .and(loanDateFrom(filter.getLoanDateFrom()))
+                .and(loanDateTo(filter.getLoanDateTo()))
+                .and(returned(filter.getReturned()))
+                .and(fetchBook());
+    }
+
+    /**
+     * Loads the book of each loan in the same query, since the mapping to LoanDTO reads it
+     * for every row. The count query of a page cannot fetch, so it is left as is. The
+     * filters read the loan's own columns, the isbn included, so this fetch is the only
+     * join on the book; a filter joining it again would add a second join to the query.
+     */
+    public static Specification<Loan> fetchBook() {
+        return (root, query, cb) -> {
+            if(!Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("book", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Loan> isbn(String isbn) {
+        if(isbn == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("isbn"), isbn);
+    }
+
+    public static Specification<Loan> isbnOrCustomer(String isbn, String customer) {
+        return (root, query, cb) -> cb.or(
+                cb.equal(root.get("isbn"), isbn),
+                cb.equal(root.get("customer"), customer));
+    }
+
+    public static Specification<Loan> customer(String customer) {
+        if(customer == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("customer"), customer);
+    }
+
+    public static Specification<Loan> loanDateFrom(LocalDate from) {
+        if(from == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDate>get("loanDate"), from);
+    }
+
+    public static Specification<Loan> loanDateTo(LocalDate to) {
+        if(to == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.<LocalDate>get("loanDate"), to);
+    }
+
+    public static Specification<Loan> returned(Boolean returned) {
+        if(returned == null) {
+            return null;
+        }
+        if(returned) {
+            return (root, query, cb) -> cb.isTrue(root.get("returned"));
+        }
+        return (root, query, cb) -> cb.or(cb.isNull(root.get("returned")), cb.isFalse(root.get("returned")));
+    }
+}
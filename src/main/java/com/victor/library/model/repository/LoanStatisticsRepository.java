@@ -0,0 +1,39 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.LoanStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanStatisticsRepository extends JpaRepository<LoanStatistics, Long> {
+
+    /**
+     * Locks every stripe, always in id order so two rolls cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(" select s from LoanStatistics s order by s.id ")
+    List<LoanStatistics> findAllForUpdate();
+
+    /**
+     * Counts a new loan on one stripe, as overdue too when it is dated on or before the
+     * overdue date already rolled forward. A single statement, so it cannot interleave
+     * with the roll.
+     */
+    @Modifying
+    @Query(" update LoanStatistics s set s.openLoans = s.openLoans + 1, " +
+            "s.overdueLoans = s.overdueLoans + case when s.overdueThrough >= :loanDate then 1 else 0 end " +
+            "where s.id = :id ")
+    int loanCreated(@Param("id") Long id, @Param("loanDate") LocalDate loanDate);
+
+    @Modifying
+    @Query(" update LoanStatistics s set s.openLoans = s.openLoans - 1, " +
+            "s.overdueLoans = s.overdueLoans - case when s.overdueThrough >= :loanDate then 1 else 0 end " +
+            "where s.id = :id ")
+    int loanReturned(@Param("id") Long id, @Param("loanDate") LocalDate loanDate);
+}
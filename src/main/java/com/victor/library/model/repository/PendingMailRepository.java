@@ -0,0 +1,11 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.PendingMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PendingMailRepository extends JpaRepository<PendingMail, Long> {
+    List<PendingMail> findByOrderByIdAsc(Pageable pageable);
+}
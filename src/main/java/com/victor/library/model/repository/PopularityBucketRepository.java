@@ -0,0 +1,23 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.PopularityBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PopularityBucketRepository extends JpaRepository<PopularityBucket, Long> {
+
+    List<PopularityBucket> findByDayGreaterThanEqual(LocalDate from);
+
+    @Modifying
+    @Query(" delete from PopularityBucket p where p.day = :day ")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(" delete from PopularityBucket p where p.day < :before ")
+    int deleteByDayBefore(@Param("before") LocalDate before);
+}
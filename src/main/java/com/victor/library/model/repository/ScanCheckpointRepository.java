@@ -0,0 +1,46 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.ScanCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ScanCheckpointRepository extends JpaRepository<ScanCheckpoint, Long> {
+
+    List<ScanCheckpoint> findByScanAndRunDateOrderByPartitionIndex(String scan, LocalDate runDate);
+
+    /**
+     * Takes an unfinished partition for a run unless another run holds an unexpired
+     * claim on it. Returns 1 when the partition was taken.
+     */
+    @Transactional
+    @Modifying
+    @Query(" update ScanCheckpoint c set c.owner = :owner, c.claimedUntil = :until " +
+            "where c.id = :id and ( c.done is null or c.done = false ) " +
+            "and ( c.claimedUntil is null or c.claimedUntil < :now ) ")
+    int claim(@Param("id") Long id,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    /**
+     * Records the progress of a partition and extends the claim, only while the run is
+     * still its owner.
+     */
+    @Transactional
+    @Modifying
+    @Query(" update ScanCheckpoint c set c.lastId = :lastId, c.done = :done, c.updatedAt = :now, " +
+            "c.claimedUntil = :until where c.id = :id and c.owner = :owner ")
+    int saveProgress(@Param("id") Long id,
+                     @Param("owner") String owner,
+                     @Param("lastId") Long lastId,
+                     @Param("done") boolean done,
+                     @Param("now") LocalDateTime now,
+                     @Param("until") LocalDateTime until);
+}
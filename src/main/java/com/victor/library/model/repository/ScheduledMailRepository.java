@@ -0,0 +1,12 @@
+package com.victor.library.model.repository;
+
+import com.victor.library.model.entity.ScheduledMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ScheduledMailRepository extends JpaRepository<ScheduledMail, Long> {
+    List<ScheduledMail> findByScheduledAtLessThanEqualOrderByScheduledAtAsc(LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,52 @@
+package com.victor.library.model.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * Pages read without a count query: one row past the page is fetched to tell whether
+ * another page follows.
+ */
+public final class SliceQueries {
+
+    private SliceQueries() {
+    }
+
+    public static <T> Slice<T> find(EntityManager entityManager, Class<T> type,
+                                    Specification<T> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        if(pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        return slice(entityManager.createQuery(query), pageable);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Slice<T> slice(Query query, Pageable pageable) {
+        if(pageable.isUnpaged()) {
+            return new SliceImpl<>((List<T>) query.getResultList());
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<T> rows = query.getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+}
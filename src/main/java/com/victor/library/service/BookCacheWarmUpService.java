@@ -0,0 +1,139 @@
+package com.victor.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.service.support.BookCacheSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Keeps a snapshot of the hottest books of the cache in a local file and preloads them
+ * after a restart, so the first requests after a deploy do not all miss. The
+ * application only reports itself ready once the preload is over.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class BookCacheWarmUpService {
+
+    public enum State { PENDING, WARMING, DONE, FAILED }
+
+    private final BookCache bookCache;
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+    private final Path snapshotFile;
+
+    @Value("${application.cache.snapshot.entries:1000}")
+    private int snapshotEntries = 1000;
+
+    @Value("${application.cache.warm-up.batch-size:200}")
+    private int batchSize = 200;
+
+    private volatile State state = State.PENDING;
+    private volatile int warmedUp;
+
+    public BookCacheWarmUpService(BookCache bookCache,
+                                  BookRepository bookRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${application.cache.snapshot.file}") String snapshotFile) {
+        this.bookCache = bookCache;
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+        this.snapshotFile = Paths.get(snapshotFile);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmUp() {
+        Thread thread = new Thread(this::warmUp, "book-cache-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int warmUp() {
+        state = State.WARMING;
+        try {
+            BookCacheSnapshot snapshot = readSnapshot();
+            List<Long> ids = snapshot.getIds();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                long stamp = bookCache.stamp();
+                warm(bookRepository.findAllById(ids.subList(from, Math.min(ids.size(), from + batchSize))), stamp);
+            }
+            List<String> isbns = snapshot.getIsbns();
+            for (int from = 0; from < isbns.size(); from += batchSize) {
+                long stamp = bookCache.stamp();
+                warm(bookRepository.findByIsbnIn(isbns.subList(from, Math.min(isbns.size(), from + batchSize))), stamp);
+            }
+            state = State.DONE;
+            log.info("Book cache warmed up with {} books from {}", warmedUp, snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            // a cold cache is slower, not broken, so this does not keep the application unready
+            state = State.FAILED;
+            log.warn("Could not warm up the book cache from {}", snapshotFile, e);
+        }
+        return warmedUp;
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.cache.snapshot.interval}")
+    public void writeSnapshot() {
+        // before the preload ends the cache holds less than the snapshot it would replace
+        if(state == State.PENDING || state == State.WARMING) {
+            return;
+        }
+        BookCacheSnapshot snapshot = BookCacheSnapshot.builder()
+                .ids(bookCache.hottestIds(snapshotEntries))
+                .isbns(bookCache.hottestIsbns(snapshotEntries))
+                .build();
+        if(snapshot.getIds().isEmpty() && snapshot.getIsbns().isEmpty()) {
+            return;
+        }
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "book-cache", ".tmp");
+            objectMapper.writeValue(temporary.toFile(), snapshot);
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write the book cache snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getWarmedUp() {
+        return warmedUp;
+    }
+
+    private BookCacheSnapshot readSnapshot() throws IOException {
+        if(!Files.exists(snapshotFile)) {
+            return new BookCacheSnapshot();
+        }
+        return objectMapper.readValue(snapshotFile.toFile(), BookCacheSnapshot.class);
+    }
+
+    private void warm(List<Book> books, long stamp) {
+        // a book evicted by a loan while its batch loaded is left to the first reader
+        for (Book book : books) {
+            if(bookCache.put(book, stamp)) {
+                warmedUp++;
+            }
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.victor.library.service;
 
 import com.victor.library.model.entity.Book;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -16,7 +17,15 @@ public interface BookService {
 
     Book update(Book book);
 
-    Page<Book> find(Book filter, Pageable pageRequest);
+    /**
+     * A {@link Slice} without the count query unless the total is asked for, in which
+     * case it is a {@link org.springframework.data.domain.Page}.
+     */
+    Slice<Book> find(Book filter, Pageable pageRequest, boolean withTotal);
 
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> getBooksByIsbns(List<String> isbns);
+
+    List<Book> getBooksByIds(List<Long> ids);
 }
@@ -0,0 +1,11 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.Customer;
+
+import java.util.Optional;
+
+public interface CustomerService {
+    Customer getOrCreate(String name, String email);
+
+    Optional<Customer> getById(Long id);
+}
@@ -0,0 +1,77 @@
+package com.victor.library.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Online backups of the file database with H2's BACKUP TO, which copies a consistent
+ * snapshot into a zip while the application keeps writing. Only the most recent
+ * backups are kept.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+@ConditionalOnProperty(name = "application.h2.backup.enabled", havingValue = "true")
+public class DatabaseBackupService {
+
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("'library-'yyyyMMdd-HHmmss'.zip'");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+
+    @Value("${application.h2.backup.keep:7}")
+    private int keep = 7;
+
+    public DatabaseBackupService(JdbcTemplate jdbcTemplate,
+                                 @Value("${application.h2.backup.directory}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Paths.get(directory);
+    }
+
+    @Scheduled(cron = "${application.h2.backup.cron}")
+    public synchronized Path backup() throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(LocalDateTime.now().format(FILE_NAME)).toAbsolutePath();
+        long start = System.nanoTime();
+        jdbcTemplate.execute("BACKUP TO '" + target.toString().replace("'", "''") + "'");
+        log.info("Database backed up to {} in {} ms", target, (System.nanoTime() - start) / 1_000_000);
+
+        List<Path> backups = list();
+        for (Path old : backups.subList(Math.min(keep, backups.size()), backups.size())) {
+            Files.deleteIfExists(old);
+        }
+        return target;
+    }
+
+    /**
+     * Backups in the backup directory, newest first.
+     */
+    public List<Path> list() throws IOException {
+        if(!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().matches("library-\\d{8}-\\d{6}\\.zip"))
+                    .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                    .collect(Collectors.toList());
+        }
+    }
+}
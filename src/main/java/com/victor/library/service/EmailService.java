@@ -3,5 +3,11 @@ package com.victor.library.service;
 import java.util.List;
 
 public interface EmailService {
+    String LATE_LOANS_SUBJECT = "Livro com empréstimo atrasado";
+
     void sendMails(List<String> mailsList, String message);
+
+    void sendMails(List<String> mailsList, String subject, String message);
+
+    int redeliverPending();
 }
@@ -0,0 +1,15 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.service.support.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    long exportLoans(LoanFilterDTO filter, ExportFormat format, OutputStream out) throws IOException;
+
+    long exportBooks(Book filter, ExportFormat format, OutputStream out) throws IOException;
+}
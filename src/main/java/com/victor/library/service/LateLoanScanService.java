@@ -0,0 +1,13 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.LateLoanNoticeDTO;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+public interface LateLoanScanService {
+
+    int scan(LocalDate runDate, Consumer<LateLoanNoticeDTO> notifier);
+
+    int resume(LocalDate runDate, Consumer<LateLoanNoticeDTO> notifier);
+}
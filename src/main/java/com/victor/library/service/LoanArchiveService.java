@@ -0,0 +1,5 @@
+package com.victor.library.service;
+
+public interface LoanArchiveService {
+    int archiveReturnedLoans();
+}
@@ -0,0 +1,12 @@
+package com.victor.library.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface LoanEventService {
+
+    SseEmitter subscribe(Long lastEventId);
+
+    int getSubscribers();
+
+    int prune();
+}
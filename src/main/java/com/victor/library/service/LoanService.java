@@ -1,11 +1,14 @@
 package com.victor.library.service;
 
+import com.victor.library.api.dto.LateLoanNoticeDTO;
 import com.victor.library.api.dto.LoanFilterDTO;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,9 +19,20 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
-    Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
+    /**
+     * Without the total, a {@link Slice} is read and the count query skipped; with it,
+     * the result is a {@link org.springframework.data.domain.Page}. The same holds for
+     * the other listings.
+     */
+    Slice<Loan> find(LoanFilterDTO filter, Pageable pageable, boolean withTotal);
 
-    Page<Loan> getLoansByBook(Book book, Pageable pageable);
+    Slice<Loan> getLoansByBook(Book book, Pageable pageable, boolean withTotal);
+
+    Slice<Loan> getLoanHistoryByBook(Book book, Pageable pageable, boolean withTotal);
+
+    Slice<Loan> getLoansByCustomer(Customer customer, Pageable pageable, boolean withTotal);
 
     List<Loan> getAllLateLoans();
+
+    List<LateLoanNoticeDTO> getLoansDueByCustomer(LocalDate dueDate);
 }
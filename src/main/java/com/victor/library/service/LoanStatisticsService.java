@@ -0,0 +1,16 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.LoanStatisticsDTO;
+
+import java.time.LocalDate;
+
+public interface LoanStatisticsService {
+
+    LoanStatisticsDTO getStatistics(int days);
+
+    int getMaxDays();
+
+    void rollForward(LocalDate today);
+
+    void reconcile(LocalDate today);
+}
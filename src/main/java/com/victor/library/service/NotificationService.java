@@ -0,0 +1,11 @@
+package com.victor.library.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public interface NotificationService {
+
+    LocalDateTime schedule(LocalDate day, Long customerId, String email, String subject, String message);
+
+    int dispatchDue();
+}
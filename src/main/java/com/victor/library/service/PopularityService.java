@@ -0,0 +1,19 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.PopularBookDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PopularityService {
+
+    void record(Long bookId, LocalDate day);
+
+    List<PopularBookDTO> getPopular(int days, int limit);
+
+    int getRetentionDays();
+
+    int checkpoint();
+
+    int restore();
+}
@@ -1,33 +1,110 @@
 package com.victor.library.service;
 
+import com.victor.library.api.dto.LateLoanNoticeDTO;
 import com.victor.library.model.entity.Loan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
 
 @Service
+@Lazy(false)
 @RequiredArgsConstructor
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
+    private static final String DUE_SOON_SUBJECT = "Seu empréstimo vence amanhã";
+
     @Value("${application.mail.lateloans.message}")
     private String message;
 
+    @Value("${application.mail.duesoon.message}")
+    private String dueSoonMessage;
+
+    private final LateLoanScanService lateLoanScanService;
     private final LoanService loanService;
+    private final NotificationService notificationService;
     private final EmailService emailService;
+    private final LoanArchiveService loanArchiveService;
+    private final LoanStatisticsService loanStatisticsService;
+    private final LoanEventService loanEventService;
+    private final LoanIsbnBackfillService loanIsbnBackfillService;
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendMailToLateLoans() {
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLateLoans.stream()
-                .map(loan -> loan.getCustomerEmail())
-                .collect(Collectors.toList());
+        LocalDate today = LocalDate.now();
+        lateLoanScanService.scan(today, notice -> scheduleLateLoansNotice(today, notice));
+    }
+
+    @Scheduled(cron = "${application.loans.late-scan.retry-cron}")
+    public void resumeLateLoansScan() {
+        // finishes the partitions of today's scan that failed or were interrupted
+        LocalDate today = LocalDate.now();
+        lateLoanScanService.resume(today, notice -> scheduleLateLoansNotice(today, notice));
+    }
+
+    @Scheduled(cron = CRON_LATE_LOANS)
+    public void sendMailToLoansDueTomorrow() {
+        LocalDate today = LocalDate.now();
+        for (LateLoanNoticeDTO notice : loanService.getLoansDueByCustomer(today.plusDays(1))) {
+            notificationService.schedule(today, notice.getCustomerId(), notice.getEmail(),
+                    DUE_SOON_SUBJECT, buildMessage(dueSoonMessage, notice));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.notifications.dispatch-delay}")
+    public void dispatchNotifications() {
+        notificationService.dispatchDue();
+    }
+
+    @Scheduled(fixedDelayString = "${application.mail.pending.retry-delay}")
+    public void redeliverPendingMails() {
+        emailService.redeliverPending();
+    }
+
+    @Scheduled(cron = "${application.loans.archive.cron}")
+    public void archiveReturnedLoans() {
+        loanArchiveService.archiveReturnedLoans();
+    }
+
+    @Scheduled(cron = "${application.loans.statistics.roll-cron}")
+    public void rollLoanStatisticsForward() {
+        loanStatisticsService.rollForward(LocalDate.now());
+    }
+
+    @Scheduled(cron = "${application.loans.statistics.reconcile-cron}")
+    public void reconcileLoanStatistics() {
+        loanStatisticsService.reconcile(LocalDate.now());
+    }
+
+    @Scheduled(fixedDelayString = "${application.loans.events.prune-delay}")
+    public void pruneLoanEvents() {
+        loanEventService.prune();
+    }
+
+    @Scheduled(cron = "${application.loans.isbn-backfill.cron}")
+    public void backfillLoanIsbns() {
+        loanIsbnBackfillService.backfill();
+    }
+
+    void scheduleLateLoansNotice(LocalDate today, LateLoanNoticeDTO notice) {
+        // one message per customer listing every late book, sent within the day's window
+        notificationService.schedule(today, notice.getCustomerId(), notice.getEmail(),
+                EmailService.LATE_LOANS_SUBJECT, buildMessage(message, notice));
+    }
 
-        emailService.sendMails(mailsList, message);
+    String buildMessage(String header, LateLoanNoticeDTO notice) {
+        StringBuilder text = new StringBuilder(header).append("\n");
+        for (Loan loan : notice.getLoans()) {
+            text.append("\n- ")
+                .append(loan.getBook().getTitle())
+                .append(" (ISBN ").append(loan.getBook().getIsbn()).append(")")
+                .append(", emprestado em ").append(loan.getLoanDate());
+        }
+        return text.toString();
     }
 }
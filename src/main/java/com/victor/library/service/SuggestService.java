@@ -0,0 +1,19 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.BookSuggestionDTO;
+import com.victor.library.model.entity.Book;
+
+import java.util.List;
+
+public interface SuggestService {
+
+    List<BookSuggestionDTO> suggest(String query, int limit);
+
+    int getMaxSuggestions();
+
+    void index(Book book);
+
+    void remove(Long bookId);
+
+    int rebuild();
+}
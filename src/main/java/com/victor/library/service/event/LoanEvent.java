@@ -0,0 +1,42 @@
+package com.victor.library.service.event;
+
+import com.victor.library.model.entity.Loan;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Published by LoanService when a loan is opened or returned, inside the transaction
+ * that made the change.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEvent {
+
+    public enum Type { CREATED, RETURNED }
+
+    private Type type;
+
+    private Long loanId;
+
+    private Long bookId;
+
+    private Long customerId;
+
+    private LocalDate loanDate;
+
+    public static LoanEvent of(Type type, Loan loan) {
+        return LoanEvent.builder()
+                .type(type)
+                .loanId(loan.getId())
+                .bookId(loan.getBook() != null ? loan.getBook().getId() : null)
+                .customerId(loan.getBorrower() != null ? loan.getBorrower().getId() : null)
+                .loanDate(loan.getLoanDate())
+                .build();
+    }
+}
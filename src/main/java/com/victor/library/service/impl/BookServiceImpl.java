@@ -4,13 +4,22 @@ import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
 import com.victor.library.model.repository.BookRepository;
 import com.victor.library.service.BookService;
+import com.victor.library.service.SuggestService;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.service.support.SingleFlight;
+import com.victor.library.service.support.jfr.BookLookupEvent;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.springframework.data.domain.ExampleMatcher.StringMatcher.CONTAINING;
 
@@ -18,9 +27,18 @@ import static org.springframework.data.domain.ExampleMatcher.StringMatcher.CONTA
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
+    private SingleFlight<Long, Optional<Book>> bookByIdFlight;
+    private BookCache bookCache;
+    private SuggestService suggestService;
 
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(BookRepository repository,
+                           SingleFlight<Long, Optional<Book>> bookByIdFlight,
+                           BookCache bookCache,
+                           SuggestService suggestService) {
         this.repository = repository;
+        this.bookByIdFlight = bookByIdFlight;
+        this.bookCache = bookCache;
+        this.suggestService = suggestService;
     }
 
 
@@ -29,12 +47,32 @@ public class BookServiceImpl implements BookService {
         if(repository.existsByIsbn(book.getIsbn())) {
             throw new BusinessException("Cannot save duplicated Isbn");
         }
-        return repository.save(book);
+        book.setAvailable(true);
+        book.setCurrentLoanId(null);
+        book.setTotalLoans(0L);
+        Book savedBook = repository.save(book);
+        suggestService.index(savedBook);
+        return savedBook;
     }
 
     @Override
     public Optional<Book> getById(Long id) {
-        return this.repository.findById(id);
+        BookLookupEvent event = BookLookupEvent.byId(id);
+        Book cached = bookCache.getById(id);
+        if(cached != null) {
+            event.finish(1, true);
+            return Optional.of(cached);
+        }
+        // only the load is shared: every caller, the loading one included, gets its own
+        // copy, so the instance managed by the loading request never reaches another one
+        Optional<Book> book = bookByIdFlight.load(id, () -> {
+            long stamp = bookCache.stamp();
+            Optional<Book> loaded = this.repository.findById(id);
+            loaded.ifPresent(found -> bookCache.put(found, stamp));
+            return loaded;
+        }).map(Book::copy);
+        event.finish(book.isPresent() ? 1 : 0, false);
+        return book;
     }
 
     @Override
@@ -43,6 +81,8 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Book id cannot be null");
         }
         this.repository.delete(book);
+        bookCache.evict(book.getId());
+        suggestService.remove(book.getId());
     }
 
     @Override
@@ -50,11 +90,14 @@ public class BookServiceImpl implements BookService {
         if(book.getId() == null || book == null) {
             throw new IllegalArgumentException("Book id cannot be null");
         }
-        return this.repository.save(book);
+        Book updatedBook = this.repository.save(book);
+        bookCache.evict(book.getId());
+        suggestService.index(updatedBook);
+        return updatedBook;
     }
 
     @Override
-    public Page<Book> find(Book filter, Pageable pageRequest) {
+    public Slice<Book> find(Book filter, Pageable pageRequest, boolean withTotal) {
         Example<Book> example = Example.of(filter,
                 ExampleMatcher
                     .matching()
@@ -62,11 +105,85 @@ public class BookServiceImpl implements BookService {
                     .withIgnoreNullValues()
                     .withStringMatcher( CONTAINING ));
 
-        return repository.findAll(example, pageRequest);
+        return withTotal
+                ? repository.findAll(example, pageRequest)
+                : repository.findSlice(example, pageRequest);
     }
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        BookLookupEvent event = BookLookupEvent.byIsbn(isbn);
+        Book cached = bookCache.getByIsbn(isbn);
+        if(cached != null) {
+            event.finish(1, true);
+            return Optional.of(cached);
+        }
+        long stamp = bookCache.stamp();
+        Optional<Book> book = repository.findByIsbn(isbn);
+        book.ifPresent(found -> bookCache.put(found, stamp));
+        event.finish(book.isPresent() ? 1 : 0, false);
+        return book;
+    }
+
+    @Override
+    public List<Book> getBooksByIsbns(List<String> isbns) {
+        if(isbns == null || isbns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // only the isbns missing from the cache go to the database, in one query
+        BookLookupEvent event = BookLookupEvent.byIsbns(isbns.size());
+        List<Book> books = new ArrayList<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String isbn : new LinkedHashSet<>(isbns)) {
+            if(isbn == null) {
+                continue;
+            }
+            Book cached = bookCache.getByIsbn(isbn);
+            if(cached == null) {
+                misses.add(isbn);
+            } else {
+                books.add(cached);
+            }
+        }
+        if(!misses.isEmpty()) {
+            long stamp = bookCache.stamp();
+            for (Book book : repository.findByIsbnIn(misses)) {
+                bookCache.put(book, stamp);
+                books.add(book);
+            }
+        }
+        event.finish(books.size(), misses.isEmpty());
+        return books;
+    }
+
+    @Override
+    public List<Book> getBooksByIds(List<Long> ids) {
+        if(ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // same as by isbn: the cache first, then one query for the ids it did not have
+        BookLookupEvent event = BookLookupEvent.byIds(ids.size());
+        List<Book> books = new ArrayList<>();
+        Set<Long> misses = new LinkedHashSet<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if(id == null) {
+                continue;
+            }
+            Book cached = bookCache.getById(id);
+            if(cached == null) {
+                misses.add(id);
+            } else {
+                books.add(cached);
+            }
+        }
+        if(!misses.isEmpty()) {
+            long stamp = bookCache.stamp();
+            for (Book book : repository.findByIdIn(misses)) {
+                bookCache.put(book, stamp);
+                books.add(book);
+            }
+        }
+        event.finish(books.size(), misses.isEmpty());
+        return books;
     }
 }
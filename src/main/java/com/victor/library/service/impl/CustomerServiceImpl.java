@@ -0,0 +1,42 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.repository.CustomerRepository;
+import com.victor.library.service.CustomerService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+public class CustomerServiceImpl implements CustomerService {
+
+    private CustomerRepository repository;
+
+    public CustomerServiceImpl(CustomerRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Customer getOrCreate(String name, String email) {
+        if(email == null) {
+            throw new IllegalArgumentException("Customer email cannot be null");
+        }
+        Optional<Customer> customer = repository.findByEmail(email);
+        if(customer.isPresent()) {
+            return customer.get();
+        }
+
+        try {
+            return repository.saveAndFlush(Customer.builder().name(name).email(email).build());
+        } catch (DataIntegrityViolationException ex) {
+            // another request registered the same email first, the unique index kept one row
+            return repository.findByEmail(email).orElseThrow(() -> ex);
+        }
+    }
+
+    @Override
+    public Optional<Customer> getById(Long id) {
+        return repository.findById(id);
+    }
+}
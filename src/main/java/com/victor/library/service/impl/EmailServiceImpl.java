@@ -1,14 +1,26 @@
 package com.victor.library.service.impl;
 
+import com.victor.library.model.entity.PendingMail;
+import com.victor.library.model.repository.PendingMailRepository;
 import com.victor.library.service.EmailService;
+import com.victor.library.service.support.CircuitBreaker;
+import com.victor.library.service.support.RateLimiter;
+import com.victor.library.service.support.jfr.LibraryEvent;
+import com.victor.library.service.support.jfr.MailSendEvent;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
@@ -16,17 +28,91 @@ public class EmailServiceImpl implements EmailService {
     @Value("${application.mail.default.remetent}")
     private String remetent;
 
+    @Value("${application.mail.pending.batch-size:100}")
+    private int pendingBatchSize = 100;
+
     private final JavaMailSender javaMailSender;
+    private final CircuitBreaker mailCircuitBreaker;
+    private final RateLimiter mailRateLimiter;
+    private final PendingMailRepository pendingMailRepository;
 
     @Override
     public void sendMails(List<String> mailsList, String message) {
+        sendMails(mailsList, LATE_LOANS_SUBJECT, message);
+    }
+
+    @Override
+    public void sendMails(List<String> mailsList, String subject, String message) {
+        MailSendEvent event = MailSendEvent.start(mailsList.size());
+        try {
+            if(deliver(mailsList, subject, message)) {
+                event.finish(LibraryEvent.OK);
+            } else {
+                park(mailsList, subject, message);
+                event.finish(LibraryEvent.REJECTED);
+            }
+        } catch (RuntimeException ex) {
+            event.finish(LibraryEvent.FAILED);
+            throw ex;
+        }
+    }
+
+    @Override
+    public int redeliverPending() {
+        int delivered = 0;
+        for (PendingMail pending : pendingMailRepository.findByOrderByIdAsc(PageRequest.of(0, pendingBatchSize))) {
+            if(!mailRateLimiter.tryAcquire()) {
+                break;
+            }
+            List<String> recipients = Arrays.asList(pending.getRecipients().split(","));
+            if(!deliver(recipients, pending.getSubject(), pending.getMessage())) {
+                pending.setAttempts(pending.getAttempts() + 1);
+                pendingMailRepository.save(pending);
+                // the relay is still failing, the rest of the batch waits for the next run
+                break;
+            }
+            pendingMailRepository.delete(pending);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private boolean deliver(List<String> recipients, String subject, String message) {
+        if(!mailCircuitBreaker.tryAcquire()) {
+            return false;
+        }
 
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(remetent);
-        mailMessage.setSubject("Livro com empréstimo atrasado");
+        mailMessage.setSubject(subject);
         mailMessage.setText(message);
-        mailMessage.setTo(mailsList.toArray(new String[mailsList.size()]));
+        mailMessage.setTo(recipients.toArray(new String[recipients.size()]));
+
+        // whatever the outcome, the acquired call must be recorded or a half-open probe stays taken
+        boolean delivered = false;
+        try {
+            javaMailSender.send(mailMessage);
+            delivered = true;
+            return true;
+        } catch (MailException ex) {
+            log.warn("Could not deliver mail to {} recipient(s): {}", recipients.size(), ex.getMessage());
+            return false;
+        } finally {
+            if(delivered) {
+                mailCircuitBreaker.recordSuccess();
+            } else {
+                mailCircuitBreaker.recordFailure();
+            }
+        }
+    }
 
-        javaMailSender.send(mailMessage);
+    private void park(List<String> recipients, String subject, String message) {
+        pendingMailRepository.save(PendingMail.builder()
+                .recipients(String.join(",", recipients))
+                .subject(subject)
+                .message(message)
+                .attempts(0)
+                .createdAt(LocalDateTime.now())
+                .build());
     }
 }
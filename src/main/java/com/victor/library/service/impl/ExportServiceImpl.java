@@ -0,0 +1,107 @@
+package com.victor.library.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.LoanSpecifications;
+import com.victor.library.service.ExportService;
+import com.victor.library.service.support.ExportFormat;
+import com.victor.library.service.support.ExportWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams every loan or book matching a filter straight from a database cursor to the
+ * response. Rows are written as they are read and the persistence context is cleared
+ * every fetch, so memory stays flat whatever the number of rows.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private LoanRepository loanRepository;
+    private BookRepository bookRepository;
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${application.export.fetch-size:500}")
+    private int fetchSize = 500;
+
+    public ExportServiceImpl(LoanRepository loanRepository,
+                             BookRepository bookRepository,
+                             ObjectMapper objectMapper) {
+        this.loanRepository = loanRepository;
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportLoans(LoanFilterDTO filter, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Loan> loans = loanRepository.streamAll(LoanSpecifications.exporting(filter), fetchSize);
+             ExportWriter writer = new ExportWriter(out, format, objectMapper,
+                     "id", "isbn", "title", "customer", "email", "loanDate", "returned")) {
+            Iterator<Loan> iterator = loans.iterator();
+            while (iterator.hasNext()) {
+                Loan loan = iterator.next();
+                Book book = loan.getBook();
+                writer.writeRow(loan.getId(),
+                        loan.getIsbn(),
+                        book != null ? book.getTitle() : null,
+                        loan.getCustomer(),
+                        loan.getCustomerEmail(),
+                        loan.getLoanDate(),
+                        Boolean.TRUE.equals(loan.getReturned()));
+                release(writer);
+            }
+            return writer.getRows();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(Book filter, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Book> books = bookRepository.streamMatching(
+                     contains(filter.getTitle()), contains(filter.getAuthor()), contains(filter.getIsbn()),
+                     filter.getAvailable());
+             ExportWriter writer = new ExportWriter(out, format, objectMapper,
+                     "id", "isbn", "title", "author", "available", "totalLoans")) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                writer.writeRow(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor(),
+                        book.getAvailable(), book.getTotalLoans());
+                release(writer);
+            }
+            return writer.getRows();
+        }
+    }
+
+    private void release(ExportWriter writer) throws IOException {
+        if(writer.getRows() % fetchSize == 0) {
+            // the rows written so far are no longer needed, neither in the session nor in the buffer
+            entityManager.clear();
+            writer.flush();
+        }
+    }
+
+    private static String contains(String value) {
+        if(value == null) {
+            return null;
+        }
+        String escaped = value.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
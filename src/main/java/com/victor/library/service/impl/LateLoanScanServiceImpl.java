@@ -0,0 +1,212 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.api.dto.LateLoanNoticeDTO;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.ScanCheckpoint;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.ScanCheckpointRepository;
+import com.victor.library.service.LateLoanScanService;
+import com.victor.library.service.support.jfr.LateLoanScanChunkEvent;
+import com.victor.library.service.support.jfr.LibraryEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class LateLoanScanServiceImpl implements LateLoanScanService {
+
+    static final String SCAN_NAME = "late-loans";
+
+    private LoanRepository loanRepository;
+    private ScanCheckpointRepository checkpointRepository;
+
+    @Value("${application.loans.late-scan.partitions:4}")
+    private int partitions = 4;
+
+    @Value("${application.loans.late-scan.threads:4}")
+    private int threads = 4;
+
+    @Value("${application.loans.late-scan.chunk-size:200}")
+    private int chunkSize = 200;
+
+    @Value("${application.loans.late-scan.lease:10m}")
+    private Duration lease = Duration.ofMinutes(10);
+
+    public LateLoanScanServiceImpl(LoanRepository loanRepository,
+                                   ScanCheckpointRepository checkpointRepository) {
+        this.loanRepository = loanRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    @Override
+    public int scan(LocalDate runDate, Consumer<LateLoanNoticeDTO> notifier) {
+        List<ScanCheckpoint> checkpoints = checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(SCAN_NAME, runDate);
+        if(checkpoints.isEmpty()) {
+            checkpoints = createPartitions(runDate);
+        }
+        return run(checkpoints, runDate, notifier);
+    }
+
+    @Override
+    public int resume(LocalDate runDate, Consumer<LateLoanNoticeDTO> notifier) {
+        // only picks up a run that was started and did not finish
+        return run(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(SCAN_NAME, runDate), runDate, notifier);
+    }
+
+    private List<ScanCheckpoint> createPartitions(LocalDate runDate) {
+        LocalDate overdueThrough = Loan.overdueThrough(runDate);
+        List<ScanCheckpoint> checkpoints = new ArrayList<>();
+
+        // legacy loans recorded before customers existed have no customer id to range
+        // over, they are walked by loan id in a partition of their own
+        checkpoints.add(newCheckpoint(runDate, 0, null, null));
+
+        Long min = loanRepository.findMinLateBorrowerId(overdueThrough);
+        Long max = loanRepository.findMaxLateBorrowerId(overdueThrough);
+        if(min != null && max != null) {
+            long step = Math.max(1, (max - min + partitions) / partitions);
+            int index = 1;
+            for (long low = min; low <= max; low += step) {
+                checkpoints.add(newCheckpoint(runDate, index++, low, Math.min(max, low + step - 1)));
+            }
+        }
+        return checkpointRepository.saveAll(checkpoints);
+    }
+
+    private ScanCheckpoint newCheckpoint(LocalDate runDate, int index, Long lowId, Long highId) {
+        return ScanCheckpoint.builder()
+                .scan(SCAN_NAME)
+                .runDate(runDate)
+                .partitionIndex(index)
+                .lowId(lowId)
+                .highId(highId)
+                .lastId(lowId != null ? lowId - 1 : 0L)
+                .done(false)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private int run(List<ScanCheckpoint> checkpoints, LocalDate runDate, Consumer<LateLoanNoticeDTO> notifier) {
+        // the scan and a resume can overlap, each partition goes to the run that claims it
+        String owner = UUID.randomUUID().toString();
+        List<ScanCheckpoint> pending = checkpoints.stream()
+                .filter(checkpoint -> !Boolean.TRUE.equals(checkpoint.getDone()))
+                .filter(checkpoint -> claim(checkpoint, owner))
+                .collect(Collectors.toList());
+        if(pending.isEmpty()) {
+            return 0;
+        }
+
+        LocalDate overdueThrough = Loan.overdueThrough(runDate);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (ScanCheckpoint checkpoint : pending) {
+                results.add(executor.submit(() -> scanPartition(checkpoint, overdueThrough, notifier)));
+            }
+
+            // a failed partition keeps its checkpoint, the others still run to the end
+            int sent = 0;
+            for (Future<Integer> result : results) {
+                try {
+                    sent += result.get();
+                } catch (ExecutionException e) {
+                    log.error("Late loan scan partition failed, it resumes from its checkpoint", e.getCause());
+                }
+            }
+            return sent;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int scanPartition(ScanCheckpoint checkpoint, LocalDate overdueThrough, Consumer<LateLoanNoticeDTO> notifier) {
+        int sent = 0;
+        boolean done;
+        do {
+            LateLoanScanChunkEvent event = LateLoanScanChunkEvent.start(checkpoint.getPartitionIndex());
+            try {
+                List<Long> ids = nextIds(checkpoint, overdueThrough);
+                int notices = 0;
+                if(!ids.isEmpty()) {
+                    notices = notify(LateLoanNoticeDTO.groupByCustomer(lateLoans(checkpoint, overdueThrough, ids)), notifier);
+                    checkpoint.setLastId(ids.get(ids.size() - 1));
+                }
+                done = ids.size() < chunkSize;
+                saveProgress(checkpoint, done);
+                sent += notices;
+                event.finish(ids.size(), notices, LibraryEvent.OK);
+            } catch (RuntimeException ex) {
+                event.finish(0, 0, LibraryEvent.FAILED);
+                throw ex;
+            }
+        } while (!done);
+        return sent;
+    }
+
+    /**
+     * Next chunk of the partition: customer ids, or for the legacy partition the first
+     * late loan id of each email.
+     */
+    private List<Long> nextIds(ScanCheckpoint checkpoint, LocalDate overdueThrough) {
+        PageRequest chunk = PageRequest.of(0, chunkSize);
+        if(checkpoint.getLowId() == null) {
+            return loanRepository.findFirstLateLoanIdsWithoutBorrower(overdueThrough, checkpoint.getLastId(), chunk);
+        }
+        return loanRepository.findLateBorrowerIds(overdueThrough, checkpoint.getLastId(), checkpoint.getHighId(), chunk);
+    }
+
+    private List<Loan> lateLoans(ScanCheckpoint checkpoint, LocalDate overdueThrough, List<Long> ids) {
+        if(checkpoint.getLowId() == null) {
+            return loanRepository.findLateLoansWithoutBorrowerByFirstLoanIds(overdueThrough, ids);
+        }
+        return loanRepository.findLateLoansByBorrowerIds(overdueThrough, ids);
+    }
+
+    private int notify(List<LateLoanNoticeDTO> notices, Consumer<LateLoanNoticeDTO> notifier) {
+        notices.forEach(notifier);
+        return notices.size();
+    }
+
+    private boolean claim(ScanCheckpoint checkpoint, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        // the claim expires, so a partition left by a run that died is taken by the next one
+        if(checkpointRepository.claim(checkpoint.getId(), owner, now, now.plus(lease)) == 0) {
+            return false;
+        }
+        checkpoint.setOwner(owner);
+        checkpoint.setClaimedUntil(now.plus(lease));
+        return true;
+    }
+
+    private void saveProgress(ScanCheckpoint checkpoint, boolean done) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = done ? null : now.plus(lease);
+        if(checkpointRepository.saveProgress(checkpoint.getId(), checkpoint.getOwner(),
+                checkpoint.getLastId(), done, now, until) == 0) {
+            throw new IllegalStateException("Late loan scan partition " + checkpoint.getPartitionIndex()
+                    + " was taken over by another run");
+        }
+        checkpoint.setDone(done);
+        checkpoint.setUpdatedAt(now);
+        checkpoint.setClaimedUntil(until);
+    }
+}
@@ -0,0 +1,70 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.LoanArchive;
+import com.victor.library.model.repository.LoanArchiveRepository;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.LoanArchiveService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class LoanArchiveServiceImpl implements LoanArchiveService {
+
+    private LoanRepository loanRepository;
+    private LoanArchiveRepository archiveRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${application.loans.archive.age-days:180}")
+    private int ageDays = 180;
+
+    @Value("${application.loans.archive.batch-size:500}")
+    private int batchSize = 500;
+
+    public LoanArchiveServiceImpl(LoanRepository loanRepository,
+                                  LoanArchiveRepository archiveRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.loanRepository = loanRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public int archiveReturnedLoans() {
+        LocalDate before = LocalDate.now().minusDays(ageDays);
+        int archived = 0;
+        int moved;
+        do {
+            // one transaction per batch keeps locks and the persistence context small
+            moved = transactionTemplate.execute(status -> archiveBatch(before));
+            archived += moved;
+        } while (moved == batchSize);
+
+        return archived;
+    }
+
+    private int archiveBatch(LocalDate before) {
+        List<Loan> loans = loanRepository.findReturnedBefore(before, PageRequest.of(0, batchSize));
+        if(loans.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime archivedAt = LocalDateTime.now();
+        archiveRepository.saveAll(loans.stream()
+                .map(loan -> LoanArchive.of(loan, archivedAt))
+                .collect(Collectors.toList()));
+        loanRepository.deleteByIdIn(loans.stream()
+                .map(Loan::getId)
+                .collect(Collectors.toList()));
+
+        return loans.size();
+    }
+}
@@ -0,0 +1,311 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.api.dto.LoanEventDTO;
+import com.victor.library.model.entity.LoanEventLog;
+import com.victor.library.model.repository.LoanEventLogRepository;
+import com.victor.library.service.LoanEventService;
+import com.victor.library.service.event.LoanEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Streams loan changes to subscribers as server-sent events. Each change is written to
+ * the event log in the transaction of the loan; once it commits, a single sequencer
+ * thread gives it the next position in the stream and hands it to the subscribers, so
+ * the stream follows commit order. Every subscriber has a bounded queue drained by a
+ * small pool of sender threads: idle subscribers hold no thread, a slow one only holds
+ * up itself, and one whose queue fills up is dropped and resumes on reconnect. A
+ * subscriber reconnecting with the last position it saw gets the missed events replayed
+ * from the log.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class LoanEventServiceImpl implements LoanEventService {
+
+    private static final LoanEventDTO KEEP_ALIVE = new LoanEventDTO();
+
+    private LoanEventLogRepository repository;
+
+    @Value("${application.loans.events.timeout:30m}")
+    private Duration timeout = Duration.ofMinutes(30);
+
+    @Value("${application.loans.events.max-subscribers:5000}")
+    private int maxSubscribers = 5000;
+
+    @Value("${application.loans.events.replay-batch-size:500}")
+    private int replayBatchSize = 500;
+
+    @Value("${application.loans.events.retention:10000}")
+    private long retention = 10000;
+
+    @Value("${application.loans.events.queue-size:256}")
+    private int queueSize = 256;
+
+    @Value("${application.loans.events.sender-threads:4}")
+    private int senderThreads = 4;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sequencer = Executors.newSingleThreadExecutor(threads("loan-events-sequencer"));
+    private ExecutorService senders;
+
+    // only touched by the sequencer thread, null until read from the log
+    private Long lastSequence;
+
+    public LoanEventServiceImpl(LoanEventLogRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener
+    public void onLoanEvent(LoanEvent event) {
+        LoanEventLog entry = repository.save(LoanEventLog.builder()
+                .type(event.getType().name())
+                .loanId(event.getLoanId())
+                .bookId(event.getBookId())
+                .customerId(event.getCustomerId())
+                .loanDate(event.getLoanDate())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sequencer.execute(() -> publish(entry));
+                }
+            });
+        } else {
+            sequencer.execute(() -> publish(entry));
+        }
+    }
+
+    @Override
+    public SseEmitter subscribe(Long lastEventId) {
+        if(subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Too many event subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, lastEventId, queueSize);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(error -> close(subscriber));
+
+        // live events queue up while the replay runs, the position skips what it replayed
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @Override
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    @Override
+    @Transactional
+    public int prune() {
+        Long maxId = repository.findMaxId();
+        if(maxId == null || maxId <= retention) {
+            return 0;
+        }
+        return repository.deleteUpTo(maxId - retention);
+    }
+
+    @Scheduled(fixedDelayString = "${application.loans.events.heartbeat:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // a full queue already has something to send
+            if(subscriber.queue.offer(KEEP_ALIVE)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sequencer.shutdownNow();
+        synchronized (this) {
+            if(senders != null) {
+                senders.shutdownNow();
+            }
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void publish(LoanEventLog entry) {
+        try {
+            if(lastSequence == null) {
+                Long maxSequence = repository.findMaxSequence();
+                lastSequence = maxSequence != null ? maxSequence : 0L;
+                // committed before a restart or a failed publish without getting a position
+                repository.findBySequenceIsNullOrderByIdAsc().forEach(this::sequence);
+            }
+            sequence(entry);
+        } catch (RuntimeException e) {
+            // the event stays in the log without a position until the next publish
+            lastSequence = null;
+            log.error("Could not publish loan event {}", entry.getId(), e);
+        }
+    }
+
+    private void sequence(LoanEventLog entry) {
+        long sequence = lastSequence + 1;
+        if(repository.assignSequence(entry.getId(), sequence) == 0) {
+            // already placed by a recovery
+            return;
+        }
+        lastSequence = sequence;
+        entry.setSequence(sequence);
+        LoanEventDTO dto = LoanEventDTO.of(entry);
+        for (Subscriber subscriber : subscribers) {
+            if(subscriber.queue.offer(dto)) {
+                schedule(subscriber);
+            } else {
+                log.warn("Dropping a loan event subscriber that fell {} events behind", queueSize);
+                drop(subscriber);
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if(subscriber.draining.compareAndSet(false, true)) {
+            senders().execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if(!subscriber.replayed) {
+                subscriber.replayed = true;
+                if(!replay(subscriber)) {
+                    return;
+                }
+            }
+            LoanEventDTO dto;
+            while (!subscriber.closed && (dto = subscriber.queue.poll()) != null) {
+                if(dto == KEEP_ALIVE) {
+                    if(!send(subscriber, SseEmitter.event().comment("keep-alive"))) {
+                        return;
+                    }
+                } else if(dto.getId() > subscriber.sentThrough) {
+                    if(!send(subscriber, event(dto))) {
+                        return;
+                    }
+                    subscriber.sentThrough = dto.getId();
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // an event queued after the last poll but before the flag was cleared
+        if(!subscriber.closed && !subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private boolean replay(Subscriber subscriber) {
+        List<LoanEventLog> page;
+        do {
+            page = repository.findBySequenceGreaterThanOrderBySequenceAsc(subscriber.sentThrough,
+                    PageRequest.of(0, replayBatchSize));
+            for (LoanEventLog entry : page) {
+                if(!send(subscriber, event(LoanEventDTO.of(entry)))) {
+                    return false;
+                }
+                subscriber.sentThrough = entry.getSequence();
+            }
+        } while (page.size() == replayBatchSize);
+        return true;
+    }
+
+    private SseEmitter.SseEventBuilder event(LoanEventDTO dto) {
+        return SseEmitter.event()
+                .id(String.valueOf(dto.getId()))
+                .name(dto.getType())
+                .data(dto);
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            close(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        close(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private synchronized ExecutorService senders() {
+        if(senders == null) {
+            senders = Executors.newFixedThreadPool(senderThreads, threads("loan-events-sender"));
+        }
+        return senders;
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<LoanEventDTO> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        // only touched by the sender thread holding the draining flag
+        private boolean replayed;
+        private long sentThrough;
+
+        private Subscriber(SseEmitter emitter, Long lastEventId, int queueSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            // without a position there is nothing to replay
+            this.replayed = lastEventId == null;
+            this.sentThrough = lastEventId != null ? lastEventId : 0;
+        }
+    }
+}
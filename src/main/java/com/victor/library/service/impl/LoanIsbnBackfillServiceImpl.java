@@ -0,0 +1,64 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.LoanIsbnBackfillService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Copies the isbn of the book into loans stored before the loan carried it. Runs once
+ * the application is ready and again on a schedule; after the first pass it only costs
+ * an index lookup for loans without isbn.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class LoanIsbnBackfillServiceImpl implements LoanIsbnBackfillService {
+
+    private LoanRepository loanRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${application.loans.isbn-backfill.batch-size:500}")
+    private int batchSize = 500;
+
+    public LoanIsbnBackfillServiceImpl(LoanRepository loanRepository,
+                                       PlatformTransactionManager transactionManager) {
+        this.loanRepository = loanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        int updated = backfill();
+        if(updated > 0) {
+            log.info("Copied the book isbn into {} loans", updated);
+        }
+    }
+
+    @Override
+    public int backfill() {
+        int updated = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            // walks by id, so loans whose book has no isbn are not picked up again
+            ids = loanRepository.findIdsWithoutIsbn(afterId, PageRequest.of(0, batchSize));
+            if(!ids.isEmpty()) {
+                List<Long> batch = ids;
+                updated += transactionTemplate.execute(status -> loanRepository.copyIsbnFromBook(batch));
+                afterId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == batchSize);
+
+        return updated;
+    }
+}
@@ -1,16 +1,32 @@
 package com.victor.library.service.impl;
 
+import com.victor.library.api.dto.LateLoanNoticeDTO;
 import com.victor.library.api.dto.LoanFilterDTO;
 import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.model.repository.LoanHistory;
 import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.LoanSpecifications;
 import com.victor.library.service.LoanService;
-import org.springframework.data.domain.Page;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.service.support.SingleFlight;
+import com.victor.library.service.support.jfr.LibraryEvent;
+import com.victor.library.service.support.jfr.LoanSaveEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,17 +34,49 @@ import java.util.Optional;
 public class LoanServiceImpl implements LoanService {
 
     private LoanRepository repository;
+    private BookRepository bookRepository;
+    private SingleFlight<List<Object>, Slice<Loan>> loansByBookFlight;
+    private BookCache bookCache;
+    private ApplicationEventPublisher eventPublisher;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository,
+                           BookRepository bookRepository,
+                           SingleFlight<List<Object>, Slice<Loan>> loansByBookFlight,
+                           BookCache bookCache,
+                           ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.bookRepository = bookRepository;
+        this.loansByBookFlight = loansByBookFlight;
+        this.bookCache = bookCache;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if(repository.existsByBookAndNotReturned(loan.getBook())){
-            throw new BusinessException("Book already loaned");
+        LoanSaveEvent event = LoanSaveEvent.start(loan.getBook().getId());
+        try {
+            if(repository.existsByBookAndNotReturned(loan.getBook())){
+                throw new BusinessException("Book already loaned");
+            }
+            Loan savedLoan = repository.save(loan);
+
+            // the conditional update only succeeds for an available book, so a concurrent
+            // loan of the same book rolls this one back instead of leaving two open loans
+            if(bookRepository.markAsLoaned(loan.getBook().getId(), savedLoan.getId()) == 0) {
+                throw new BusinessException("Book already loaned");
+            }
+            bookCache.evict(loan.getBook().getId());
+            eventPublisher.publishEvent(LoanEvent.of(LoanEvent.Type.CREATED, savedLoan));
+            event.finish(savedLoan.getId(), LibraryEvent.OK);
+            return savedLoan;
+        } catch (BusinessException ex) {
+            event.finish(null, LibraryEvent.REJECTED);
+            throw ex;
+        } catch (RuntimeException ex) {
+            event.finish(null, LibraryEvent.FAILED);
+            throw ex;
         }
-        return repository.save(loan);
     }
 
     @Override
@@ -37,24 +85,78 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Loan updatedLoan = repository.save(loan);
+        if(Boolean.TRUE.equals(updatedLoan.getReturned()) && updatedLoan.getBook() != null) {
+            // only the first return of a loan releases the book, a repeated one is not counted again
+            if(bookRepository.markAsReturned(updatedLoan.getBook().getId(), updatedLoan.getId()) > 0) {
+                eventPublisher.publishEvent(LoanEvent.of(LoanEvent.Type.RETURNED, updatedLoan));
+            }
+            bookCache.evict(updatedLoan.getBook().getId());
+        }
+        return updatedLoan;
+    }
+
+    @Override
+    public Slice<Loan> find(LoanFilterDTO filter, Pageable pageable, boolean withTotal) {
+        if(filter.getIsbn() == null || filter.getCustomer() == null) {
+            Specification<Loan> specification = LoanSpecifications.matching(filter);
+            return withTotal
+                    ? repository.findAll(specification, pageable)
+                    : repository.findSlice(specification, pageable);
+        }
+
+        // isbn or customer: a union lets each side use its own index
+        return withTotal
+                ? repository.findByBookIsbnOrCustomer(filter, pageable)
+                : repository.findSliceByBookIsbnOrCustomer(filter, pageable);
     }
 
     @Override
-    public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
-        return repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
+    public Slice<Loan> getLoansByBook(Book book, Pageable pageable, boolean withTotal) {
+        List<Object> key = Arrays.asList(book.getId(), pageable, withTotal);
+        // the coalesced callers share the query, not the loans it loaded
+        return loansByBookFlight.load(key, () -> withTotal
+                        ? repository.findByBook(book, pageable)
+                        : repository.findSliceByBook(book, pageable))
+                .map(Loan::copy);
     }
 
     @Override
-    public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
-        return repository.findByBook(book, pageable);
+    public Slice<Loan> getLoanHistoryByBook(Book book, Pageable pageable, boolean withTotal) {
+        // the union is ordered by the query itself, a client sort would not apply to it
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Slice<LoanHistory> history = withTotal
+                ? repository.findHistoryByBook(book.getId(), unsorted)
+                : repository.findHistorySliceByBook(book.getId(), unsorted);
+        return history.map(entry -> Loan.builder()
+                .id(entry.getId())
+                .customer(entry.getCustomer())
+                .customerEmail(entry.getCustomerEmail())
+                .book(book)
+                .loanDate(new java.sql.Date(entry.getLoanDate().getTime()).toLocalDate())
+                .returned(entry.getReturned())
+                .build());
+    }
+
+    @Override
+    public Slice<Loan> getLoansByCustomer(Customer customer, Pageable pageable, boolean withTotal) {
+        // newest first, the order of the (id_customer, loan_date) index
+        Pageable byLoanDate = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "loanDate"));
+        return withTotal
+                ? repository.findByBorrower(customer, byLoanDate)
+                : repository.findSliceByBorrower(customer, byLoanDate);
     }
 
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findByLoanDateLessThanAndNotReturned(Loan.overdueThrough(LocalDate.now()));
+    }
+
+    @Override
+    public List<LateLoanNoticeDTO> getLoansDueByCustomer(LocalDate dueDate) {
+        return LateLoanNoticeDTO.groupByCustomer(repository.findOpenLoansByLoanDateOrderByCustomer(Loan.loanDateDueOn(dueDate)));
     }
 }
@@ -0,0 +1,231 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.api.dto.LoanStatisticsDTO;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.LoanDailyCount;
+import com.victor.library.model.entity.LoanStatistics;
+import com.victor.library.model.repository.LoanDailyCountRepository;
+import com.victor.library.model.repository.LoanDayCount;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.LoanStatisticsRepository;
+import com.victor.library.service.LoanStatisticsService;
+import com.victor.library.service.event.LoanEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loan statistics read from counters instead of counting the loan table. Opening and
+ * returning a loan update one stripe of the counters in the same transaction, the
+ * overdue counter is rolled forward once a day as open loans pass the loan period, and
+ * a reconciliation recounts everything from the loan table to correct any drift.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class LoanStatisticsServiceImpl implements LoanStatisticsService {
+
+    private static final LocalDate MIN_LOAN_DATE = LocalDate.of(1900, 1, 1);
+
+    private LoanStatisticsRepository statisticsRepository;
+    private LoanDailyCountRepository dailyCountRepository;
+    private LoanRepository loanRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${application.loans.statistics.days:30}")
+    private int maxDays = 30;
+
+    @Value("${application.loans.statistics.stripes:16}")
+    private int stripes = 16;
+
+    public LoanStatisticsServiceImpl(LoanStatisticsRepository statisticsRepository,
+                                     LoanDailyCountRepository dailyCountRepository,
+                                     LoanRepository loanRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.statisticsRepository = statisticsRepository;
+        this.dailyCountRepository = dailyCountRepository;
+        this.loanRepository = loanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs inside the transaction of the loan change, so the counters commit or roll back
+     * together with the loan. Each loan goes to the stripe of its id, so concurrent loans
+     * mostly lock different rows.
+     */
+    @EventListener
+    public void onLoanEvent(LoanEvent event) {
+        if(event.getLoanDate() == null) {
+            return;
+        }
+        int stripe = stripeOf(event);
+        if(event.getType() == LoanEvent.Type.CREATED) {
+            statisticsRepository.loanCreated((long) stripe, event.getLoanDate());
+            if(dailyCountRepository.increment(event.getLoanDate(), stripe, 1) == 0) {
+                // the day rows are created ahead by the roll forward, this only covers gaps
+                dailyCountRepository.save(LoanDailyCount.builder()
+                        .day(event.getLoanDate()).stripe(stripe).loans(1L).build());
+            }
+        } else if(event.getType() == LoanEvent.Type.RETURNED) {
+            statisticsRepository.loanReturned((long) stripe, event.getLoanDate());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LoanStatisticsDTO getStatistics(int days) {
+        if(days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Days must be between 1 and " + maxDays);
+        }
+        long openLoans = 0;
+        long overdueLoans = 0;
+        LoanStatistics head = LoanStatistics.builder().build();
+        for (LoanStatistics stripe : statisticsRepository.findAll()) {
+            openLoans += stripe.getOpenLoans();
+            overdueLoans += stripe.getOverdueLoans();
+            if(LoanStatistics.HEAD.equals(stripe.getId())) {
+                head = stripe;
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Long> counted = dailyCountRepository.sumByDayBetween(today.minusDays(days - 1), today)
+                .stream()
+                .collect(Collectors.toMap(LoanDayCount::getLoanDate, LoanDayCount::getLoans));
+        Map<LocalDate, Long> loansPerDay = new LinkedHashMap<>();
+        for (LocalDate day = today.minusDays(days - 1); !day.isAfter(today); day = day.plusDays(1)) {
+            loansPerDay.put(day, counted.getOrDefault(day, 0L));
+        }
+
+        return LoanStatisticsDTO.builder()
+                .openLoans(openLoans)
+                .overdueLoans(overdueLoans)
+                .overdueAsOf(head.getOverdueThrough() != null
+                        ? head.getOverdueThrough().plusDays(Loan.LOAN_DAYS)
+                        : null)
+                .reconciledAt(head.getReconciledAt())
+                .loansPerDay(loansPerDay)
+                .build();
+    }
+
+    @Override
+    public int getMaxDays() {
+        return maxDays;
+    }
+
+    @Override
+    @Transactional
+    public void rollForward(LocalDate today) {
+        List<LoanStatistics> rows = statisticsRepository.findAllForUpdate();
+        if(rows.stream().filter(row -> row.getId() < stripes).count() < stripes) {
+            // first start, or more stripes were configured
+            reconcile(today);
+            return;
+        }
+        LoanStatistics head = rows.get(0);
+        LocalDate overdueThrough = Loan.overdueThrough(today);
+        if(overdueThrough.isAfter(head.getOverdueThrough())) {
+            // the stripe locks hold back loan changes, so no loan is counted twice or missed
+            long becameOverdue = loanRepository.countOpenByLoanDateBetween(
+                    head.getOverdueThrough().plusDays(1), overdueThrough);
+            head.setOverdueLoans(head.getOverdueLoans() + becameOverdue);
+            rows.forEach(row -> row.setOverdueThrough(overdueThrough));
+            statisticsRepository.saveAll(rows);
+        }
+        createDays(today, 0);
+        dailyCountRepository.deleteByDayBefore(today.minusDays(maxDays - 1));
+    }
+
+    @Override
+    @Transactional
+    public void reconcile(LocalDate today) {
+        Map<Long, LoanStatistics> rows = statisticsRepository.findAllForUpdate().stream()
+                .collect(Collectors.toMap(LoanStatistics::getId, Function.identity(), (a, b) -> a, TreeMap::new));
+        LocalDate overdueThrough = Loan.overdueThrough(today);
+        long openLoans = loanRepository.countOpen();
+        long overdueLoans = loanRepository.countOpenByLoanDateBetween(MIN_LOAN_DATE, overdueThrough);
+
+        long countedOpen = rows.values().stream().mapToLong(LoanStatistics::getOpenLoans).sum();
+        long countedOverdue = rows.values().stream().mapToLong(LoanStatistics::getOverdueLoans).sum();
+        if(!rows.isEmpty() && (countedOpen != openLoans || countedOverdue != overdueLoans)) {
+            log.warn("Loan statistics drifted: open {} counted {}, overdue {} counted {}",
+                    countedOpen, openLoans, countedOverdue, overdueLoans);
+        }
+        // the recount goes on the head stripe, the others start again from zero
+        for (long id = 0; id < stripes; id++) {
+            rows.computeIfAbsent(id, i -> LoanStatistics.builder().id(i).build());
+        }
+        for (LoanStatistics row : rows.values()) {
+            boolean head = LoanStatistics.HEAD.equals(row.getId());
+            row.setOpenLoans(head ? openLoans : 0L);
+            row.setOverdueLoans(head ? overdueLoans : 0L);
+            row.setOverdueThrough(overdueThrough);
+            row.setReconciledAt(head ? LocalDateTime.now() : null);
+        }
+        statisticsRepository.saveAll(rows.values());
+
+        LocalDate from = today.minusDays(maxDays - 1);
+        Map<LocalDate, Long> loansPerDay = loanRepository.countByLoanDateBetween(from, today).stream()
+                .collect(Collectors.toMap(LoanDayCount::getLoanDate, LoanDayCount::getLoans));
+        Map<LoanDailyCount.Key, LoanDailyCount> days = dailyCountRepository.findByDayBetween(from, today.plusDays(1))
+                .stream()
+                .collect(Collectors.toMap(row -> new LoanDailyCount.Key(row.getDay(), row.getStripe()), Function.identity()));
+        for (LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                LoanDailyCount row = days.computeIfAbsent(new LoanDailyCount.Key(day, stripe),
+                        key -> LoanDailyCount.builder().day(key.getDay()).stripe(key.getStripe()).build());
+                row.setLoans(stripe == 0 ? loansPerDay.getOrDefault(day, 0L) : 0L);
+            }
+        }
+        dailyCountRepository.saveAll(days.values());
+        createDays(today, 1);
+        dailyCountRepository.deleteByDayBefore(from);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        // catches up with the days the application was down, or counts from scratch; a
+        // call on this bean skips the proxy, so the row lock needs its own transaction
+        transactionTemplate.execute(status -> {
+            rollForward(LocalDate.now());
+            return null;
+        });
+    }
+
+    private int stripeOf(LoanEvent event) {
+        return event.getLoanId() != null ? (int) (event.getLoanId() % stripes) : 0;
+    }
+
+    private void createDays(LocalDate today, int from) {
+        Set<LoanDailyCount.Key> existing = dailyCountRepository.findByDayBetween(today.plusDays(from), today.plusDays(1))
+                .stream()
+                .map(row -> new LoanDailyCount.Key(row.getDay(), row.getStripe()))
+                .collect(Collectors.toSet());
+        List<LoanDailyCount> missing = new ArrayList<>();
+        for (int i = from; i <= 1; i++) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                if(!existing.contains(new LoanDailyCount.Key(today.plusDays(i), stripe))) {
+                    missing.add(LoanDailyCount.builder().day(today.plusDays(i)).stripe(stripe).loans(0L).build());
+                }
+            }
+        }
+        dailyCountRepository.saveAll(missing);
+    }
+}
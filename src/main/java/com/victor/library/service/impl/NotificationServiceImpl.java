@@ -0,0 +1,89 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.model.entity.ScheduledMail;
+import com.victor.library.model.repository.ScheduledMailRepository;
+import com.victor.library.service.EmailService;
+import com.victor.library.service.NotificationService;
+import com.victor.library.service.support.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Spreads customer notifications over a daily window instead of sending them all when
+ * the scan runs. Each customer falls in a fixed slot of the window, picked by a hash of
+ * its id, and the due mails are handed to the mail relay no faster than the mail rate.
+ */
+@Service
+public class NotificationServiceImpl implements NotificationService {
+
+    private ScheduledMailRepository repository;
+    private EmailService emailService;
+    private RateLimiter mailRateLimiter;
+
+    @Value("${application.notifications.window-start:8h}")
+    private Duration windowStart = Duration.ofHours(8);
+
+    @Value("${application.notifications.window-length:10h}")
+    private Duration windowLength = Duration.ofHours(10);
+
+    @Value("${application.notifications.slots:120}")
+    private int slots = 120;
+
+    @Value("${application.notifications.batch-size:50}")
+    private int batchSize = 50;
+
+    public NotificationServiceImpl(ScheduledMailRepository repository,
+                                   EmailService emailService,
+                                   RateLimiter mailRateLimiter) {
+        this.repository = repository;
+        this.emailService = emailService;
+        this.mailRateLimiter = mailRateLimiter;
+    }
+
+    @Override
+    public LocalDateTime schedule(LocalDate day, Long customerId, String email, String subject, String message) {
+        // legacy loans without a registered customer are spread by their e-mail instead
+        Object key = customerId != null ? customerId : email.toLowerCase();
+        LocalDateTime scheduledAt = day.atStartOfDay()
+                .plus(windowStart)
+                .plus(windowLength.dividedBy(slots).multipliedBy(slotOf(key, slots)));
+
+        repository.save(ScheduledMail.builder()
+                .recipients(email)
+                .subject(subject)
+                .message(message)
+                .scheduledAt(scheduledAt)
+                .createdAt(LocalDateTime.now())
+                .build());
+        return scheduledAt;
+    }
+
+    @Override
+    public int dispatchDue() {
+        int dispatched = 0;
+        for (ScheduledMail mail : repository.findByScheduledAtLessThanEqualOrderByScheduledAtAsc(
+                LocalDateTime.now(), PageRequest.of(0, batchSize))) {
+            if(!mailRateLimiter.tryAcquire()) {
+                // over the send rate, the rest stays due for the next tick
+                break;
+            }
+            // a failed delivery is parked by the mail service, so the schedule is done with it
+            emailService.sendMails(Arrays.asList(mail.getRecipients().split(",")), mail.getSubject(), mail.getMessage());
+            repository.delete(mail);
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    static int slotOf(Object key, int slots) {
+        // fibonacci hashing, sequential customer ids land in slots far apart
+        int hash = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), slots);
+    }
+}
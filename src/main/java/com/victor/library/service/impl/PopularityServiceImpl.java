@@ -0,0 +1,157 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.api.dto.PopularBookDTO;
+import com.victor.library.model.entity.PopularityBucket;
+import com.victor.library.model.repository.PopularityBucketRepository;
+import com.victor.library.service.PopularityService;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.support.SpaceSaving;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks books by loan volume from memory. Every committed loan bumps a space-saving
+ * summary of its day, and a window query adds up the summaries of the days it covers,
+ * so reading the ranking never touches the loans table. The day summaries are
+ * periodically written to the database and merged back after a restart.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class PopularityServiceImpl implements PopularityService {
+
+    private PopularityBucketRepository repository;
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${application.popularity.retention-days:30}")
+    private int retentionDays = 30;
+
+    @Value("${application.popularity.capacity:1000}")
+    private int capacity = 1000;
+
+    private final ConcurrentNavigableMap<LocalDate, SpaceSaving<Long>> buckets = new ConcurrentSkipListMap<>();
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+    private volatile boolean restored;
+
+    public PopularityServiceImpl(PopularityBucketRepository repository,
+                                 PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        if(event.getType() == LoanEvent.Type.CREATED && event.getBookId() != null) {
+            record(event.getBookId(), event.getLoanDate() != null ? event.getLoanDate() : LocalDate.now());
+        }
+    }
+
+    @Override
+    public void record(Long bookId, LocalDate day) {
+        if(day.isBefore(LocalDate.now().minusDays(retentionDays - 1))) {
+            return;
+        }
+        buckets.computeIfAbsent(day, d -> new SpaceSaving<>(capacity)).add(bookId, 1);
+        dirtyDays.add(day);
+    }
+
+    @Override
+    public List<PopularBookDTO> getPopular(int days, int limit) {
+        if(days < 1 || days > retentionDays) {
+            throw new IllegalArgumentException("Window must be between 1 and " + retentionDays + " days");
+        }
+        LocalDate today = LocalDate.now();
+        Map<Long, Long> totals = new HashMap<>();
+        buckets.subMap(today.minusDays(days - 1), true, today, true).values()
+                .forEach(bucket -> bucket.snapshot()
+                        .forEach(counter -> totals.merge(counter.getKey(), counter.getCount(), Long::sum)));
+
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> PopularBookDTO.builder()
+                        .bookId(entry.getKey())
+                        .loans(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.popularity.checkpoint-interval:60000}")
+    public int checkpoint() {
+        // rows of a day are replaced as a whole, so they are not written before they were read back
+        if(!restored) {
+            return 0;
+        }
+        LocalDate oldest = LocalDate.now().minusDays(retentionDays - 1);
+        buckets.headMap(oldest).clear();
+
+        int written = 0;
+        for (LocalDate day : dirtyDays) {
+            dirtyDays.remove(day);
+            SpaceSaving<Long> bucket = buckets.get(day);
+            if(bucket == null) {
+                continue;
+            }
+            List<PopularityBucket> rows = bucket.snapshot().stream()
+                    .map(counter -> PopularityBucket.builder()
+                            .day(day)
+                            .bookId(counter.getKey())
+                            .loans(counter.getCount())
+                            .error(counter.getError())
+                            .build())
+                    .collect(Collectors.toList());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    repository.deleteByDay(day);
+                    repository.saveAll(rows);
+                });
+                written += rows.size();
+            } catch (RuntimeException e) {
+                dirtyDays.add(day);
+                log.warn("Could not checkpoint the loan popularity of {}", day, e);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> repository.deleteByDayBefore(oldest));
+        return written;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int restore() {
+        List<PopularityBucket> rows = repository.findByDayGreaterThanEqual(LocalDate.now().minusDays(retentionDays - 1));
+        // loans recorded since startup are kept and the saved counts added on top of them
+        rows.forEach(row -> buckets.computeIfAbsent(row.getDay(), d -> new SpaceSaving<>(capacity))
+                .add(row.getBookId(), row.getLoans(), row.getError() != null ? row.getError() : 0));
+        restored = true;
+        log.info("Restored {} loan popularity counters", rows.size());
+        return rows.size();
+    }
+}
@@ -0,0 +1,156 @@
+package com.victor.library.service.impl;
+
+import com.victor.library.api.dto.BookSuggestionDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.service.SuggestService;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.support.SuggestTrie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Title and author suggestions for the search box, answered from a prefix tree kept in
+ * memory instead of a LIKE scan of the book table. Every word of the normalized title
+ * and author is a key; a query of several words is looked up by its longest one and
+ * checked against the whole text, so "de mar" finds "Aventuras de Maria". Books are
+ * ranked by their number of loans. The tree is built at startup and kept up to date as
+ * books are saved, changed, deleted and loaned.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class SuggestServiceImpl implements SuggestService {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private BookRepository bookRepository;
+    private SuggestTrie trie;
+    private final Map<Long, BookSuggestionDTO> suggestions = new ConcurrentHashMap<>();
+    // normalized title and author, one per line, each word after a space
+    private final Map<Long, String> texts = new ConcurrentHashMap<>();
+
+    @Value("${application.books.suggest.batch-size:500}")
+    private int batchSize = 500;
+
+    private int maxSuggestions;
+
+    public SuggestServiceImpl(BookRepository bookRepository,
+                              @Value("${application.books.suggest.max-results:20}") int maxSuggestions,
+                              @Value("${application.books.suggest.max-key-length:32}") int maxKeyLength,
+                              @Value("${application.books.suggest.top-threshold:64}") int topThreshold) {
+        this.bookRepository = bookRepository;
+        this.maxSuggestions = maxSuggestions;
+        this.trie = new SuggestTrie(maxSuggestions, maxKeyLength, topThreshold);
+    }
+
+    @Override
+    public List<BookSuggestionDTO> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if(prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // keys are single words cut at the maximum length, so the whole query is checked
+        // against the text of each candidate
+        String longest = Collections.max(Arrays.asList(prefix.split(" ")), Comparator.comparingInt(String::length));
+        String phrase = " " + prefix;
+        return trie.top(longest, Math.min(limit, maxSuggestions), id -> {
+                    String text = texts.get(id);
+                    return text != null && text.contains(phrase);
+                }).stream()
+                .map(suggestions::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    @Override
+    public void index(Book book) {
+        if(book.getId() == null) {
+            return;
+        }
+        suggestions.put(book.getId(), BookSuggestionDTO.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .build());
+        String title = normalize(book.getTitle());
+        String author = normalize(book.getAuthor());
+        texts.put(book.getId(), " " + title + "\n " + author);
+        List<String> keys = new ArrayList<>();
+        addWords(keys, title);
+        addWords(keys, author);
+        trie.put(book.getId(), keys, book.getTotalLoans() != null ? book.getTotalLoans() : 0);
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        trie.remove(bookId);
+        suggestions.remove(bookId);
+        texts.remove(bookId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanEvent(LoanEvent event) {
+        if(event.getType() == LoanEvent.Type.CREATED && event.getBookId() != null) {
+            trie.increment(event.getBookId(), 1);
+        }
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int rebuild() {
+        int indexed = 0;
+        Page<Book> page;
+        PageRequest pageRequest = PageRequest.of(0, batchSize, Sort.by("id"));
+        do {
+            page = bookRepository.findAll(pageRequest);
+            page.forEach(this::index);
+            indexed += page.getNumberOfElements();
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+        log.info("Suggestion index built with {} books", indexed);
+        return indexed;
+    }
+
+    static String normalize(String text) {
+        if(text == null) {
+            return "";
+        }
+        String withoutMarks = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutMarks.toLowerCase()).replaceAll(" ").trim();
+    }
+
+    private static void addWords(List<String> keys, String text) {
+        if(text.isEmpty()) {
+            return;
+        }
+        keys.addAll(Arrays.asList(text.split(" ")));
+    }
+}
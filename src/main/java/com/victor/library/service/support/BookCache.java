@@ -0,0 +1,128 @@
+package com.victor.library.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.victor.library.model.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of books by id, with an isbn index pointing at the id. Both are
+ * bounded, expire after a while and keep track of their most frequently used keys,
+ * which is what the warm-up snapshot records.
+ * <p>
+ * The cache holds detached copies and hands out copies, so no caller shares an
+ * instance with another. A load takes a {@link #stamp()} before reading the database
+ * and its put is dropped when the book was evicted since, which keeps a load that
+ * raced a committing loan from bringing back the state from before the commit.
+ */
+public class BookCache implements MeterBinder {
+
+    private final String name;
+    private final Cache<Long, Book> byId;
+    private final Cache<String, Long> idByIsbn;
+    private final Cache<Long, Long> evictedAt;
+    private final AtomicLong clock = new AtomicLong();
+
+    public BookCache(String name, long maximumSize, Duration expireAfterWrite) {
+        this.name = name;
+        this.byId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).recordStats().build();
+        this.idByIsbn = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).recordStats().build();
+        // an eviction older than the entries themselves cannot matter to a put any more
+        this.evictedAt = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).build();
+    }
+
+    public Book getById(Long id) {
+        Book book = byId.getIfPresent(id);
+        return book != null ? book.copy() : null;
+    }
+
+    public Book getByIsbn(String isbn) {
+        Long id = idByIsbn.getIfPresent(isbn);
+        Book book = id != null ? byId.getIfPresent(id) : null;
+        // the index can outlive a book whose isbn changed or that was evicted
+        return book != null && isbn.equals(book.getIsbn()) ? book.copy() : null;
+    }
+
+    /**
+     * Position of the eviction clock, to be taken before loading the books to put.
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Caches a copy of a book loaded after the given stamp, unless the book was evicted
+     * once the load had started.
+     */
+    public boolean put(Book book, long stamp) {
+        Book copy = book.copy();
+        boolean[] stored = new boolean[1];
+        byId.asMap().compute(book.getId(), (id, current) -> {
+            Long evicted = evictedAt.getIfPresent(id);
+            if(evicted != null && evicted > stamp) {
+                return current;
+            }
+            stored[0] = true;
+            return copy;
+        });
+        if(stored[0] && book.getIsbn() != null) {
+            idByIsbn.put(book.getIsbn(), book.getId());
+        }
+        return stored[0];
+    }
+
+    /**
+     * Evicts a book now and, inside a transaction, once more after commit so a reader
+     * running concurrently cannot put back the state from before the commit.
+     */
+    public void evict(Long id) {
+        invalidate(id);
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(id);
+                }
+            });
+        }
+    }
+
+
+    public List<Long> hottestIds(int limit) {
+        return byId.policy().eviction()
+                .map(eviction -> (List<Long>) new ArrayList<>(eviction.hottest(limit).keySet()))
+                .orElse(Collections.emptyList());
+    }
+
+    public List<String> hottestIsbns(int limit) {
+        return idByIsbn.policy().eviction()
+                .map(eviction -> (List<String>) new ArrayList<>(eviction.hottest(limit).keySet()))
+                .orElse(Collections.emptyList());
+    }
+
+    public long size() {
+        return byId.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, name + ".byId");
+        CaffeineCacheMetrics.monitor(registry, idByIsbn, name + ".byIsbn");
+    }
+
+    private void invalidate(Long id) {
+        // recorded before the removal, so a put either sees it or is removed right after
+        evictedAt.put(id, clock.incrementAndGet());
+        byId.invalidate(id);
+    }
+}
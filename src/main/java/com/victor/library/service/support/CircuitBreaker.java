@@ -0,0 +1,79 @@
+package com.victor.library.service.support;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Minimal circuit breaker: after {@code failureThreshold} consecutive failures it
+ * opens and rejects calls for {@code openDuration}, then lets a single probe call
+ * through (half open) whose outcome closes or reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, Clock clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if(state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if(state == State.HALF_OPEN) {
+            if(probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openedAt = null;
+        probing = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+            probing = false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized Instant getOpenedAt() {
+        return openedAt;
+    }
+}
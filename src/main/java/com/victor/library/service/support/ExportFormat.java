@@ -0,0 +1,32 @@
+package com.victor.library.service.support;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<ExportFormat> of(String name) {
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -0,0 +1,96 @@
+package com.victor.library.service.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows one at a time as NDJSON, one object per line, or as CSV with a header
+ * line, so an export of any size never holds more than one row.
+ */
+public class ExportWriter implements Closeable {
+
+    private final ExportFormat format;
+    private final String[] columns;
+    private final Writer writer;
+    private final JsonGenerator generator;
+    private long rows;
+
+    public ExportWriter(OutputStream out, ExportFormat format, ObjectMapper objectMapper, String... columns) throws IOException {
+        this.format = format;
+        this.columns = columns;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if(format == ExportFormat.NDJSON) {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        } else {
+            this.generator = null;
+            writeCsvLine(columns);
+        }
+    }
+
+    public void writeRow(Object... values) throws IOException {
+        if(generator != null) {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                generator.writeObject(values[i]);
+            }
+            generator.writeEndObject();
+        } else {
+            writeCsvLine(values);
+        }
+        rows++;
+    }
+
+    public void flush() throws IOException {
+        if(generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(generator != null) {
+            if(rows > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+        writer.close();
+    }
+
+    private void writeCsvLine(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+            writer.write(csv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csv(Object value) {
+        if(value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
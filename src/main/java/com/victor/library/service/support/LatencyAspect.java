@@ -0,0 +1,47 @@
+package com.victor.library.service.support;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Times the layers a request goes through for the {@link LatencyRecorder}.
+ */
+@Aspect
+public class LatencyAspect {
+
+    private final LatencyRecorder recorder;
+
+    public LatencyAspect(LatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Around("within(com.victor.library.api.resource..*)")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, LatencyRecorder.Phase.CONTROLLER);
+    }
+
+    @Around("within(com.victor.library.service.impl..*)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, LatencyRecorder.Phase.SERVICE);
+    }
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, LatencyRecorder.Phase.REPOSITORY);
+    }
+
+    @Around("execution(* org.modelmapper.ModelMapper.map(..))")
+    public Object mapping(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, LatencyRecorder.Phase.MAPPING);
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, LatencyRecorder.Phase phase) throws Throwable {
+        long start = recorder.enter();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            recorder.exit(phase, start);
+        }
+    }
+}
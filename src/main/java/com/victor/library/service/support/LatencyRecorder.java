@@ -0,0 +1,152 @@
+package com.victor.library.service.support;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits the time of each request into phases and records them, in microseconds, into
+ * one HDR histogram per endpoint and phase. Each phase gets its exclusive time: a
+ * service call is not counted again in the controller that made it, and whatever
+ * runs after the controller returned (message conversion and writing the body) is
+ * the serialization phase.
+ *
+ * The timings of a request live in a thread local, so work done off the request
+ * thread is not attributed to it. Recording is wait free; only reading the
+ * histograms synchronizes.
+ */
+public class LatencyRecorder {
+
+    public enum Phase { CONTROLLER, SERVICE, REPOSITORY, MAPPING, SERIALIZATION, OTHER, TOTAL }
+
+    private final ThreadLocal<RequestTimings> current = new ThreadLocal<>();
+    private final ConcurrentMap<String, Map<Phase, PhaseHistogram>> endpoints = new ConcurrentHashMap<>();
+    private final LongSupplier nanoTime;
+
+    public LatencyRecorder() {
+        this(System::nanoTime);
+    }
+
+    public LatencyRecorder(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    public void begin() {
+        current.set(new RequestTimings(nanoTime.getAsLong()));
+    }
+
+    public long enter() {
+        RequestTimings timings = current.get();
+        if(timings == null) {
+            return -1;
+        }
+        timings.children.push(new long[1]);
+        return nanoTime.getAsLong();
+    }
+
+    public void exit(Phase phase, long start) {
+        RequestTimings timings = current.get();
+        if(timings == null || start < 0) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        long elapsed = now - start;
+        timings.add(phase, elapsed - timings.children.pop()[0]);
+        if(timings.children.isEmpty()) {
+            if(phase == Phase.CONTROLLER) {
+                timings.controllerEnd = now;
+            }
+        } else {
+            timings.children.peek()[0] += elapsed;
+        }
+    }
+
+    /**
+     * Ends the current request and records it under the given endpoint, or drops it
+     * when the endpoint is null (no handler matched).
+     */
+    public void end(String endpoint) {
+        RequestTimings timings = current.get();
+        current.remove();
+        if(timings == null || endpoint == null) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        long total = now - timings.start;
+        long serialization = timings.controllerEnd > 0 ? now - timings.controllerEnd : 0;
+        long attributed = serialization;
+        for (long exclusive : timings.exclusive.values()) {
+            attributed += exclusive;
+        }
+        timings.add(Phase.SERIALIZATION, serialization);
+        timings.add(Phase.OTHER, Math.max(0, total - attributed));
+        timings.add(Phase.TOTAL, total);
+
+        Map<Phase, PhaseHistogram> phases = endpoints.computeIfAbsent(endpoint, key -> {
+            Map<Phase, PhaseHistogram> histograms = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                histograms.put(phase, new PhaseHistogram());
+            }
+            return histograms;
+        });
+        for (Phase phase : Phase.values()) {
+            Long nanos = timings.exclusive.get(phase);
+            phases.get(phase).record(TimeUnit.NANOSECONDS.toMicros(nanos != null ? nanos : 0));
+        }
+    }
+
+    public Map<String, Map<Phase, Histogram>> snapshot() {
+        Map<String, Map<Phase, Histogram>> snapshot = new TreeMap<>();
+        endpoints.forEach((endpoint, phases) -> {
+            Map<Phase, Histogram> histograms = new LinkedHashMap<>();
+            phases.forEach((phase, histogram) -> histograms.put(phase, histogram.snapshot()));
+            snapshot.put(endpoint, histograms);
+        });
+        return snapshot;
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private static class RequestTimings {
+        private final long start;
+        private final Map<Phase, Long> exclusive = new EnumMap<>(Phase.class);
+        private final Deque<long[]> children = new ArrayDeque<>();
+        private long controllerEnd;
+
+        RequestTimings(long start) {
+            this.start = start;
+        }
+
+        void add(Phase phase, long nanos) {
+            exclusive.merge(phase, nanos, Long::sum);
+        }
+    }
+
+    private static class PhaseHistogram {
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram accumulated = new Histogram(3);
+        private Histogram interval;
+
+        void record(long micros) {
+            recorder.recordValue(micros);
+        }
+
+        synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            return accumulated.copy();
+        }
+    }
+}
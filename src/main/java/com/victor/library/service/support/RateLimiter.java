@@ -0,0 +1,44 @@
+package com.victor.library.service.support;
+
+import java.time.Clock;
+
+/**
+ * Token bucket refilled at {@code permitsPerSecond}, holding at most one second of
+ * permits so an idle period does not turn into a burst above the rate.
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final double permitsPerSecond;
+    private final Clock clock;
+
+    private double permits;
+    private long refilledAt;
+
+    public RateLimiter(String name, double permitsPerSecond, Clock clock) {
+        this.name = name;
+        this.permitsPerSecond = permitsPerSecond;
+        this.clock = clock;
+        this.permits = permitsPerSecond;
+        this.refilledAt = clock.millis();
+    }
+
+    public synchronized boolean tryAcquire() {
+        long now = clock.millis();
+        permits = Math.min(permitsPerSecond, permits + (now - refilledAt) * permitsPerSecond / 1000);
+        refilledAt = now;
+        if(permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+}
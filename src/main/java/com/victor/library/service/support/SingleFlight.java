@@ -0,0 +1,85 @@
+package com.victor.library.service.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader and
+ * every caller arriving while it is still running waits for and shares its result.
+ * Nothing is kept after the load completes, so this is not a cache.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if(running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("library.singleflight.loads", loads, LongAdder::sum)
+                .tag("name", name)
+                .description("Loads executed against the database")
+                .register(registry);
+        FunctionCounter.builder("library.singleflight.coalesced", coalesced, LongAdder::sum)
+                .tag("name", name)
+                .description("Duplicate loads avoided by joining an in-flight load")
+                .register(registry);
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.victor.library.service.support;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving heavy hitters summary: keeps at most {@code capacity} counters and, when a
+ * new key arrives on a full summary, takes over the smallest counter. A counter never
+ * undercounts its key and overcounts it by at most its recorded error, so the keys with
+ * the largest counts are the most frequent ones as long as the capacity is well above
+ * the number of keys asked for.
+ */
+public class SpaceSaving<K> {
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+
+    public SpaceSaving(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(K key, long increment) {
+        add(key, increment, 0);
+    }
+
+    public synchronized void add(K key, long increment, long error) {
+        Counter<K> counter = counters.get(key);
+        if(counter == null) {
+            if(counters.size() < capacity) {
+                counter = new Counter<>(key, 0, 0);
+            } else {
+                Counter<K> smallest = smallest();
+                counters.remove(smallest.key);
+                // the newcomer may have been seen up to that many times before it was evicted
+                counter = new Counter<>(key, smallest.count, smallest.count);
+            }
+            counters.put(key, counter);
+        }
+        counter.count += increment;
+        counter.error += error;
+    }
+
+    public synchronized List<Counter<K>> top(int limit) {
+        List<Counter<K>> result = snapshot();
+        result.sort(Comparator.<Counter<K>>comparingLong(Counter::getCount).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public synchronized List<Counter<K>> snapshot() {
+        List<Counter<K>> result = new ArrayList<>(counters.size());
+        counters.values().forEach(counter -> result.add(new Counter<>(counter.key, counter.count, counter.error)));
+        return result;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    private Counter<K> smallest() {
+        Counter<K> smallest = null;
+        for (Counter<K> counter : counters.values()) {
+            if(smallest == null || counter.count < smallest.count) {
+                smallest = counter;
+            }
+        }
+        return smallest;
+    }
+
+    public static class Counter<K> {
+
+        private final K key;
+        private long count;
+        private long error;
+
+        public Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.victor.library.service.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Prefix tree over words that answers "the k best scored ids under this prefix". Ids
+ * sharing a word prefix share its nodes, and only the nodes with at least
+ * {@code topThreshold} ids below them keep their top k, so a query there does not walk
+ * the subtree; a smaller subtree is cheap enough to walk on each lookup. A kept top k is
+ * updated in place when a score grows and recomputed from the children, on the next
+ * lookup, when an id leaves the node. Children are kept in sorted arrays to keep the
+ * nodes small, and a node is dropped once no id is left below it.
+ */
+public class SuggestTrie {
+
+    private final int k;
+    private final int maxKeyLength;
+    private final int topThreshold;
+    private final Node root = new Node();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Comparator<Long> byScore = Comparator
+            .comparingLong((Long id) -> entries.get(id).score).reversed()
+            .thenComparing(Comparator.naturalOrder());
+
+    public SuggestTrie(int k, int maxKeyLength) {
+        this(k, maxKeyLength, 0);
+    }
+
+    public SuggestTrie(int k, int maxKeyLength, int topThreshold) {
+        this.k = k;
+        this.maxKeyLength = maxKeyLength;
+        this.topThreshold = topThreshold;
+    }
+
+    public synchronized void put(Long id, Collection<String> keys, long score) {
+        remove(id);
+        Set<String> truncated = new LinkedHashSet<>();
+        for (String key : keys) {
+            if(!key.isEmpty()) {
+                truncated.add(key.length() > maxKeyLength ? key.substring(0, maxKeyLength) : key);
+            }
+        }
+        Entry entry = new Entry(truncated.toArray(new String[0]), score);
+        entries.put(id, entry);
+        for (String key : entry.keys) {
+            Node node = root;
+            node.count++;
+            offer(node, id);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                node.count++;
+                offer(node, id);
+            }
+            node.addId(id);
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        Entry entry = entries.get(id);
+        if(entry == null) {
+            return;
+        }
+        for (String key : entry.keys) {
+            Node node = root;
+            node.count--;
+            invalidate(node, id);
+            for (int i = 0; i < key.length(); i++) {
+                Node child = node.child(key.charAt(i));
+                if(--child.count == 0) {
+                    // nothing else below, the whole branch goes
+                    node.removeChild(key.charAt(i));
+                    node = null;
+                    break;
+                }
+                invalidate(child, id);
+                node = child;
+            }
+            if(node != null) {
+                node.removeId(id);
+            }
+        }
+        entries.remove(id);
+    }
+
+    public synchronized void increment(Long id, long delta) {
+        Entry entry = entries.get(id);
+        if(entry == null || delta <= 0) {
+            return;
+        }
+        entry.score += delta;
+        for (String key : entry.keys) {
+            Node node = root;
+            offer(node, id);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.child(key.charAt(i));
+                offer(node, id);
+            }
+        }
+    }
+
+    public synchronized List<Long> top(String prefix, int limit) {
+        return top(prefix, limit, id -> true);
+    }
+
+    /**
+     * Best scored ids under a prefix that pass a check, for queries the prefix alone does
+     * not answer. The top k of the node is tried first, the whole subtree only when too
+     * few of those pass.
+     */
+    public synchronized List<Long> top(String prefix, int limit, Predicate<Long> accept) {
+        Node node = find(prefix);
+        if(node == null) {
+            return Collections.emptyList();
+        }
+        List<Long> result = new ArrayList<>();
+        List<Long> top = topOf(node);
+        boolean rejected = false;
+        for (int i = 0; i < top.size() && result.size() < limit; i++) {
+            if(accept.test(top.get(i))) {
+                result.add(top.get(i));
+            } else {
+                rejected = true;
+            }
+        }
+        // a top with fewer than k ids already holds the whole subtree
+        if(rejected && result.size() < limit && top.size() == k) {
+            result.clear();
+            List<Long> all = new ArrayList<>(collect(node, new LinkedHashSet<>()));
+            all.sort(byScore);
+            for (int i = 0; i < all.size() && result.size() < limit; i++) {
+                if(accept.test(all.get(i))) {
+                    result.add(all.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int nodes() {
+        return count(root);
+    }
+
+    synchronized int keptTops() {
+        return countTops(root);
+    }
+
+    private Node find(String prefix) {
+        String key = prefix.length() > maxKeyLength ? prefix.substring(0, maxKeyLength) : prefix;
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    private void offer(Node node, Long id) {
+        if(node.top == null) {
+            // not kept, or recomputed on the next lookup
+            return;
+        }
+        if(!node.top.contains(id)) {
+            if(node.top.size() >= k && byScore.compare(id, node.top.get(node.top.size() - 1)) > 0) {
+                return;
+            }
+            node.top.add(id);
+        }
+        node.top.sort(byScore);
+        if(node.top.size() > k) {
+            node.top.remove(node.top.size() - 1);
+        }
+    }
+
+    private void invalidate(Node node, Long id) {
+        // a node that fell under the threshold stops keeping its top, it would go stale
+        if(node.top != null && (node.count < topThreshold || node.top.contains(id))) {
+            node.top = null;
+        }
+    }
+
+    private List<Long> topOf(Node node) {
+        if(node.top != null) {
+            return node.top;
+        }
+        List<Long> top;
+        if(node.count < topThreshold) {
+            top = new ArrayList<>(collect(node, new LinkedHashSet<>()));
+        } else {
+            Set<Long> candidates = new LinkedHashSet<>(node.ids);
+            for (int i = 0; i < node.size; i++) {
+                candidates.addAll(topOf(node.nodes[i]));
+            }
+            top = new ArrayList<>(candidates);
+        }
+        top.sort(byScore);
+        if(top.size() > k) {
+            top = new ArrayList<>(top.subList(0, k));
+        }
+        // a small subtree is walked again next time instead of keeping a list per node
+        if(node.count >= topThreshold) {
+            node.top = top;
+        }
+        return top;
+    }
+
+    private Set<Long> collect(Node node, Set<Long> ids) {
+        ids.addAll(node.ids);
+        for (int i = 0; i < node.size; i++) {
+            collect(node.nodes[i], ids);
+        }
+        return ids;
+    }
+
+    private int count(Node node) {
+        int nodes = 1;
+        for (int i = 0; i < node.size; i++) {
+            nodes += count(node.nodes[i]);
+        }
+        return nodes;
+    }
+
+    private int countTops(Node node) {
+        int tops = node.top != null ? 1 : 0;
+        for (int i = 0; i < node.size; i++) {
+            tops += countTops(node.nodes[i]);
+        }
+        return tops;
+    }
+
+    private static class Entry {
+
+        private final String[] keys;
+        private long score;
+
+        private Entry(String[] keys, long score) {
+            this.keys = keys;
+            this.score = score;
+        }
+    }
+
+    private static class Node {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_NODES = new Node[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] nodes = NO_NODES;
+        private int size;
+        // ids in the subtree, counted once per key
+        private int count;
+        private List<Long> ids = Collections.emptyList();
+        private List<Long> top;
+
+        private Node child(char label) {
+            int index = Arrays.binarySearch(labels, 0, size, label);
+            return index >= 0 ? nodes[index] : null;
+        }
+
+        private Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, 0, size, label);
+            if(index >= 0) {
+                return nodes[index];
+            }
+            int insertAt = -index - 1;
+            if(size == labels.length) {
+                // most nodes have a single child, so the arrays grow one by one at first
+                labels = Arrays.copyOf(labels, size < 4 ? size + 1 : size * 2);
+                nodes = Arrays.copyOf(nodes, labels.length);
+            }
+            System.arraycopy(labels, insertAt, labels, insertAt + 1, size - insertAt);
+            System.arraycopy(nodes, insertAt, nodes, insertAt + 1, size - insertAt);
+            Node child = new Node();
+            labels[insertAt] = label;
+            nodes[insertAt] = child;
+            size++;
+            return child;
+        }
+
+        private void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, 0, size, label);
+            System.arraycopy(labels, index + 1, labels, index, size - index - 1);
+            System.arraycopy(nodes, index + 1, nodes, index, size - index - 1);
+            nodes[--size] = null;
+        }
+
+        private void addId(Long id) {
+            if(ids.isEmpty()) {
+                ids = new ArrayList<>(1);
+            }
+            if(!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+
+        private void removeId(Long id) {
+            ids.remove(id);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.victor.library.service.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.victor.library.BookLookup")
+@Label("Book Lookup")
+@Category({"Library", "Books"})
+@Description("Book lookup by id or isbn, outcome is cached, loaded or missing")
+public class BookLookupEvent extends LibraryEvent {
+
+    public static final String CACHED = "cached";
+    public static final String LOADED = "loaded";
+    public static final String MISSING = "missing";
+
+    public static final String BY_ID = "id";
+    public static final String BY_ISBN = "isbn";
+
+    @Label("Lookup Kind")
+    private String kind;
+
+    @Label("Book Id")
+    private long bookId;
+
+    @Label("Isbn")
+    private String isbn;
+
+    @Label("Batch Size")
+    private int batchSize;
+
+    @Label("Found")
+    private int found;
+
+    public static BookLookupEvent byId(Long bookId) {
+        BookLookupEvent event = new BookLookupEvent();
+        event.kind = BY_ID;
+        event.bookId = idOf(bookId);
+        event.batchSize = 1;
+        event.begin();
+        return event;
+    }
+
+    public static BookLookupEvent byIsbn(String isbn) {
+        BookLookupEvent event = new BookLookupEvent();
+        event.kind = BY_ISBN;
+        event.isbn = isbn;
+        event.batchSize = 1;
+        event.begin();
+        return event;
+    }
+
+    public static BookLookupEvent byIds(int batchSize) {
+        BookLookupEvent event = new BookLookupEvent();
+        event.kind = BY_ID;
+        event.batchSize = batchSize;
+        event.begin();
+        return event;
+    }
+
+    public static BookLookupEvent byIsbns(int batchSize) {
+        BookLookupEvent event = new BookLookupEvent();
+        event.kind = BY_ISBN;
+        event.batchSize = batchSize;
+        event.begin();
+        return event;
+    }
+
+    public void finish(int found, boolean cached) {
+        this.found = found;
+        setOutcome(found == 0 ? MISSING : cached ? CACHED : LOADED);
+        commit();
+    }
+}
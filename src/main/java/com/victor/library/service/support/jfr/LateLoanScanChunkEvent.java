@@ -0,0 +1,36 @@
+package com.victor.library.service.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.victor.library.LateLoanScanChunk")
+@Label("Late Loan Scan Chunk")
+@Category({"Library", "Loans"})
+@Description("One chunk of customers of a late-loan scan partition")
+public class LateLoanScanChunkEvent extends LibraryEvent {
+
+    @Label("Partition")
+    private int partition;
+
+    @Label("Batch Size")
+    private int batchSize;
+
+    @Label("Notices")
+    private int notices;
+
+    public static LateLoanScanChunkEvent start(Integer partition) {
+        LateLoanScanChunkEvent event = new LateLoanScanChunkEvent();
+        event.partition = partition != null ? partition : -1;
+        event.begin();
+        return event;
+    }
+
+    public void finish(int batchSize, int notices, String outcome) {
+        this.batchSize = batchSize;
+        this.notices = notices;
+        setOutcome(outcome);
+        commit();
+    }
+}
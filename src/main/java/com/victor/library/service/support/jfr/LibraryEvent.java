@@ -0,0 +1,29 @@
+package com.victor.library.service.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the application's flight recorder events. Events are only written when a
+ * recording has them enabled, so instrumented code pays next to nothing otherwise.
+ */
+@Category("Library")
+public abstract class LibraryEvent extends Event {
+
+    public static final String OK = "ok";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+
+    // the flight recorder leaves out the private fields of a super class
+    @Label("Outcome")
+    protected String outcome;
+
+    protected void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    static long idOf(Long id) {
+        return id != null ? id : 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.victor.library.service.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.victor.library.LoanSave")
+@Label("Loan Save")
+@Category({"Library", "Loans"})
+@Description("LoanService.save, from the open loan check to the book availability update")
+public class LoanSaveEvent extends LibraryEvent {
+
+    @Label("Book Id")
+    private long bookId;
+
+    @Label("Loan Id")
+    private long loanId;
+
+    public static LoanSaveEvent start(Long bookId) {
+        LoanSaveEvent event = new LoanSaveEvent();
+        event.bookId = idOf(bookId);
+        event.begin();
+        return event;
+    }
+
+    public void finish(Long loanId, String outcome) {
+        this.loanId = idOf(loanId);
+        setOutcome(outcome);
+        commit();
+    }
+}
@@ -0,0 +1,28 @@
+package com.victor.library.service.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.victor.library.MailSend")
+@Label("Mail Send")
+@Category({"Library", "Mail"})
+@Description("EmailService.sendMails, outcome is ok when delivered and rejected when parked for redelivery")
+public class MailSendEvent extends LibraryEvent {
+
+    @Label("Batch Size")
+    private int batchSize;
+
+    public static MailSendEvent start(int batchSize) {
+        MailSendEvent event = new MailSendEvent();
+        event.batchSize = batchSize;
+        event.begin();
+        return event;
+    }
+
+    public void finish(String outcome) {
+        setOutcome(outcome);
+        commit();
+    }
+}
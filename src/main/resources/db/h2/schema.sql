@@ -0,0 +1,124 @@
+-- Schema of the h2file profile. Hibernate only validates it, so every change to an
+-- entity needs its column here too. Statements are idempotent and run at each start.
+
+create table if not exists tb_customer (
+    id bigint generated by default as identity primary key,
+    nm_name varchar(100),
+    ds_email varchar(255) not null,
+    constraint uk_customer_email unique (ds_email)
+);
+
+create table if not exists tb_book (
+    id bigint generated by default as identity primary key,
+    nm_title varchar(255),
+    nm_author varchar(255),
+    ds_isbn varchar(255),
+    fl_available boolean,
+    id_current_loan bigint,
+    qt_total_loans bigint
+);
+create index if not exists idx_book_isbn on tb_book (ds_isbn);
+create index if not exists idx_book_available on tb_book (fl_available);
+
+create table if not exists loan (
+    id bigint generated by default as identity primary key,
+    customer varchar(100),
+    customer_email varchar(255),
+    id_customer bigint,
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    constraint fk_loan_customer foreign key (id_customer) references tb_customer (id),
+    constraint fk_loan_book foreign key (id_book) references tb_book (id)
+);
+create index if not exists idx_loan_book on loan (id_book);
+create index if not exists idx_loan_customer on loan (customer);
+create index if not exists idx_loan_customer_date on loan (id_customer, loan_date);
+create index if not exists idx_loan_date on loan (loan_date);
+create index if not exists idx_loan_returned_date on loan (returned, loan_date);
+-- loans created before the isbn was carried on the loan get it from the backfill job
+alter table loan add column if not exists ds_isbn varchar(255);
+create index if not exists idx_loan_isbn_date on loan (ds_isbn, loan_date);
+
+create table if not exists loan_archive (
+    id bigint not null primary key,
+    customer varchar(100),
+    customer_email varchar(255),
+    id_customer bigint,
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    archived_at timestamp
+);
+alter table loan_archive add column if not exists ds_isbn varchar(255);
+create index if not exists idx_loan_archive_book on loan_archive (id_book, loan_date);
+
+create table if not exists tb_pending_mail (
+    id bigint generated by default as identity primary key,
+    ds_recipients varchar(2000),
+    ds_subject varchar(255),
+    ds_message varchar(4000),
+    qt_attempts integer,
+    dt_created timestamp
+);
+
+create table if not exists tb_scheduled_mail (
+    id bigint generated by default as identity primary key,
+    ds_recipients varchar(2000),
+    ds_subject varchar(255),
+    ds_message varchar(4000),
+    dt_scheduled timestamp,
+    dt_created timestamp
+);
+create index if not exists idx_scheduled_mail_at on tb_scheduled_mail (dt_scheduled);
+
+create table if not exists tb_scan_checkpoint (
+    id bigint generated by default as identity primary key,
+    ds_scan varchar(50),
+    dt_run date,
+    nr_partition integer,
+    id_low bigint,
+    id_high bigint,
+    id_last bigint,
+    fl_done boolean,
+    dt_updated timestamp,
+    constraint uk_scan_checkpoint unique (ds_scan, dt_run, nr_partition)
+);
+alter table tb_scan_checkpoint add column if not exists ds_owner varchar(36);
+alter table tb_scan_checkpoint add column if not exists dt_claimed_until timestamp;
+
+create table if not exists tb_popularity_bucket (
+    id bigint generated by default as identity primary key,
+    dt_day date,
+    id_book bigint,
+    qt_loans bigint,
+    qt_error bigint
+);
+create index if not exists idx_popularity_bucket_day on tb_popularity_bucket (dt_day);
+
+create table if not exists tb_loan_statistics (
+    id bigint not null primary key,
+    qt_open bigint,
+    qt_overdue bigint,
+    dt_overdue_through date,
+    dt_reconciled timestamp
+);
+
+create table if not exists tb_loan_daily_count (
+    dt_day date not null,
+    nr_stripe integer not null,
+    qt_loans bigint,
+    primary key (dt_day, nr_stripe)
+);
+
+create table if not exists tb_loan_event (
+    id bigint generated by default as identity primary key,
+    ds_type varchar(20),
+    id_loan bigint,
+    id_book bigint,
+    id_customer bigint,
+    dt_loan date,
+    dt_created timestamp,
+    nr_sequence bigint
+);
+create unique index if not exists idx_loan_event_sequence on tb_loan_event (nr_sequence);
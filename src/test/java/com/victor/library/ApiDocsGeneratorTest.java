@@ -0,0 +1,23 @@
+package com.victor.library;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApiDocsGeneratorTest {
+
+    @Test
+    @DisplayName("Should generate the API documentation served by the prod profile")
+    public void generateApiDocsTest(@TempDir Path dir) throws Exception {
+        Path apiDocs = dir.resolve("openapi").resolve("library-api.json");
+
+        ApiDocsGenerator.generate(apiDocs);
+
+        assertThat(new String(Files.readAllBytes(apiDocs), "UTF-8")).contains("/api/books", "/api/loans");
+    }
+}
@@ -0,0 +1,69 @@
+package com.victor.library;
+
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.DatabaseBackupService;
+import com.victor.library.service.LoanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the h2file profile twice on the same files: the schema script has to pass
+ * Hibernate's validation, run again over an existing database, and keep what the
+ * first run wrote.
+ */
+public class H2FileProfileTest {
+
+    private static final Path DIRECTORY = Paths.get("target", "h2file-test");
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+    }
+
+    @Test
+    @DisplayName("Should keep the data and take backups with the h2file profile")
+    public void durableStorageTest() throws Exception {
+        Long loanId;
+        try (ConfigurableApplicationContext context = start()) {
+            Book book = context.getBean(BookRepository.class).save(Book.builder()
+                    .isbn("123").title("Aventuras").author("Fulano").available(true).totalLoans(0L).build());
+            loanId = context.getBean(LoanService.class).save(Loan.builder()
+                    .book(book).customer("Fulano").loanDate(LocalDate.now()).returned(false).build()).getId();
+
+            Path backup = context.getBean(DatabaseBackupService.class).backup();
+            assertThat(backup).exists();
+            assertThat(Files.size(backup)).isPositive();
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertThat(context.getBean(LoanRepository.class).findById(loanId))
+                    .hasValueSatisfying(loan -> assertThat(loan.getBook().getIsbn()).isEqualTo("123"));
+            assertThat(context.getBean(BookRepository.class).findByIsbn("123"))
+                    .hasValueSatisfying(book -> assertThat(book.getAvailable()).isFalse());
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .profiles("h2file")
+                .web(WebApplicationType.NONE)
+                .run("--application.h2.path=" + DIRECTORY.resolve("library").toAbsolutePath(),
+                        "--application.h2.backup.directory=" + DIRECTORY.resolve("backup").toAbsolutePath());
+    }
+}
@@ -0,0 +1,93 @@
+package com.victor.library;
+
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loan creation throughput of the in-memory database against the h2file profile with
+ * different write delays. Results go to target/loan-save-throughput.properties; runs
+ * only with the benchmark profile (./mvnw test -Pbenchmark).
+ */
+@Tag("benchmark")
+public class LoanSaveThroughputBenchmark {
+
+    private static final Path REPORT = Paths.get("target", "loan-save-throughput.properties");
+    private static final Path DIRECTORY = Paths.get("target", "h2file-benchmark");
+    private static final int WARM_UP = 500;
+    private static final int LOANS = 5000;
+
+    @Test
+    @DisplayName("Should measure loan saves on memory and file storage")
+    public void loanSaveThroughputTest() throws IOException {
+        Properties report = new Properties();
+
+        measure("memory", report);
+        for (String writeDelay : new String[]{"0", "500", "2000"}) {
+            measure("write-delay-" + writeDelay, report,
+                    "--spring.profiles.active=h2file",
+                    "--application.h2.path=" + DIRECTORY.resolve(writeDelay).resolve("library").toAbsolutePath(),
+                    "--application.h2.write-delay=" + writeDelay,
+                    "--application.h2.backup.enabled=false");
+        }
+
+        Files.createDirectories(REPORT.getParent());
+        try (Writer writer = Files.newBufferedWriter(REPORT)) {
+            report.store(writer, "Loan saves per second and mean save time in microseconds");
+        }
+    }
+
+    private void measure(String name, Properties report, String... args) throws IOException {
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            BookRepository bookRepository = context.getBean(BookRepository.class);
+            LoanService loanService = context.getBean(LoanService.class);
+
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < WARM_UP + LOANS; i++) {
+                books.add(bookRepository.save(Book.builder().isbn("bench-" + i).title("Livro " + i)
+                        .author("Autor").available(true).totalLoans(0L).build()));
+            }
+            for (int i = 0; i < WARM_UP; i++) {
+                loanService.save(loan(books.get(i)));
+            }
+
+            long start = System.nanoTime();
+            for (int i = WARM_UP; i < books.size(); i++) {
+                loanService.save(loan(books.get(i)));
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertThat(bookRepository.findByIsbn("bench-" + (books.size() - 1)))
+                    .hasValueSatisfying(book -> assertThat(book.getAvailable()).isFalse());
+            report.setProperty(name + ".saves-per-second", String.valueOf(LOANS * 1_000_000_000L / elapsed));
+            report.setProperty(name + ".mean-save", String.valueOf(elapsed / LOANS / 1_000));
+        }
+    }
+
+    private Loan loan(Book book) {
+        return Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(false).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.victor.library;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the application with and without the prod profile, measuring startup time and
+ * first-request latency. The numbers are written to target/startup-times.properties
+ * so runs can be compared; only the behaviour of the profile is asserted.
+ */
+public class ProdProfileStartupTest {
+
+    private static final Path REPORT = Paths.get("target", "startup-times.properties");
+
+    @Test
+    @DisplayName("Should start the prod profile without springfox and answer the first request")
+    public void prodStartupTest() throws Exception {
+        Properties report = new Properties();
+
+        measure("default", report);
+        ConfigurableApplicationContext context = measure("prod", report);
+        try {
+            assertThat(context.getBeanNamesForType(Docket.class)).isEmpty();
+        } finally {
+            context.close();
+        }
+
+        Files.createDirectories(REPORT.getParent());
+        try (Writer writer = Files.newBufferedWriter(REPORT)) {
+            report.store(writer, "Startup and first request latency in milliseconds");
+        }
+    }
+
+    private ConfigurableApplicationContext measure(String profile, Properties report) throws IOException {
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .profiles(profile)
+                .run("--server.port=0");
+        long started = System.nanoTime();
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        ResponseEntity<String> response = new RestTemplate()
+                .getForEntity("http://localhost:" + port + "/api/books", String.class);
+        long firstRequest = System.nanoTime();
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        report.setProperty(profile + ".startup", String.valueOf((started - start) / 1_000_000));
+        report.setProperty(profile + ".first-request", String.valueOf((firstRequest - started) / 1_000_000));
+
+        if(!"prod".equals(profile)) {
+            context.close();
+        }
+        return context;
+    }
+}
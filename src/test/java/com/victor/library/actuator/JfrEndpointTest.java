@@ -0,0 +1,75 @@
+package com.victor.library.actuator;
+
+import com.victor.library.service.support.jfr.LibraryEvent;
+import com.victor.library.service.support.jfr.LoanSaveEvent;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class JfrEndpointTest {
+
+    private final JfrEndpoint endpoint = new JfrEndpoint();
+
+    @AfterEach
+    public void tearDown() {
+        endpoint.recordings().forEach(recording -> endpoint.close((Long) recording.get("id")));
+    }
+
+    @Test
+    @DisplayName("Should record the application events and dump them")
+    public void recordAndDumpTest() throws Exception {
+        assumeTrue(FlightRecorder.isAvailable());
+
+        // cenário
+        Map<String, Object> recording = endpoint.start("test", Duration.ofMinutes(1));
+        long id = (Long) recording.get("id");
+
+        LoanSaveEvent.start(10l).finish(20l, LibraryEvent.OK);
+
+        // execução
+        endpoint.stop(id);
+        Resource dump = endpoint.dump(id);
+
+        // verificações
+        Path file = dump.getFile().toPath();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.victor.library.LoanSave"))
+                .hasSize(1)
+                .allMatch(event -> event.getLong("bookId") == 10l
+                        && event.getLong("loanId") == 20l
+                        && LibraryEvent.OK.equals(event.getString("outcome")));
+
+        dump.getInputStream().close();
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should bound the duration and the number of recordings")
+    public void boundedRecordingsTest() {
+        assumeTrue(FlightRecorder.isAvailable());
+
+        Map<String, Object> first = endpoint.start("first", Duration.ofDays(1));
+        endpoint.start("second", null);
+
+        Throwable exception = catchThrowable(() -> endpoint.start("third", null));
+
+        assertThat(first.get("duration")).isEqualTo(Duration.ofMinutes(10));
+        assertThat(exception).isInstanceOf(InvalidEndpointRequestException.class);
+    }
+}
@@ -0,0 +1,67 @@
+package com.victor.library.api.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageResponseTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should copy content, page number, size and total from a page")
+    public void ofPageTest() {
+        Page<String> page = new PageImpl<>(createContent(3), PageRequest.of(2, 3), 20);
+
+        PageResponse<String> response = PageResponse.of(page, Function.identity());
+
+        assertThat(response.getContent()).hasSize(3);
+        assertThat(response.getNumber()).isEqualTo(2);
+        assertThat(response.getSize()).isEqualTo(3);
+        assertThat(response.getTotalElements()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Should leave the total out of the serialized envelope of a slice")
+    public void withoutTotalTest() throws Exception {
+        Slice<String> slice = new SliceImpl<>(createContent(1), PageRequest.of(0, 10), true);
+
+        String json = objectMapper.writeValueAsString(PageResponse.of(slice, Function.identity()));
+
+        assertThat(json).doesNotContain("totalElements");
+        assertThat(json).contains("\"hasNext\":true");
+    }
+
+    @Test
+    @DisplayName("Should serialize to a smaller payload than PageImpl")
+    public void payloadSizeTest() throws Exception {
+        Page<String> page = new PageImpl<>(createContent(10), PageRequest.of(0, 10), 100);
+
+        byte[] pageImpl = objectMapper.writeValueAsBytes(page);
+        byte[] envelope = objectMapper.writeValueAsBytes(PageResponse.of(page, Function.identity()));
+        byte[] contentOnly = objectMapper.writeValueAsBytes(page.getContent());
+
+        // the envelope overhead over the bare content must stay a small fraction of PageImpl's
+        assertThat(envelope.length).isLessThan(pageImpl.length);
+        assertThat(envelope.length - contentOnly.length).isLessThan((pageImpl.length - contentOnly.length) / 3);
+    }
+
+    private List<String> createContent(int size) {
+        List<String> content = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            content.add("book-" + i);
+        }
+        return content;
+    }
+}
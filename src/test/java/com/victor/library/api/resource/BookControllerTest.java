@@ -1,10 +1,19 @@
 package com.victor.library.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.api.dto.BookAvailabilityRequestDTO;
 import com.victor.library.api.dto.BookDTO;
+import com.victor.library.api.dto.BookLookupRequestDTO;
+import com.victor.library.api.dto.BookSuggestionDTO;
+import com.victor.library.api.dto.PopularBookDTO;
 import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
 import com.victor.library.service.BookService;
+import com.victor.library.service.ExportService;
+import com.victor.library.service.LoanService;
+import com.victor.library.service.PopularityService;
+import com.victor.library.service.SuggestService;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -27,6 +36,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -46,6 +57,18 @@ public class BookControllerTest {
     @MockBean
     BookService service;
 
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    PopularityService popularityService;
+
+    @MockBean
+    SuggestService suggestService;
+
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("Should create a new book with success")
     public void createBookTest() throws Exception {
@@ -276,7 +299,7 @@ public class BookControllerTest {
                 .isbn(createBook().getIsbn())
                 .build();
 
-        BDDMockito.given( service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)) )
+        BDDMockito.given( service.find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(true)) )
                 .willReturn( new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
 
         String queryString = String.format("?title=%s&author=%s&page=0&size=100",
@@ -291,9 +314,227 @@ public class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(100))
+                .andExpect(jsonPath("number").value(0));
+
+    }
+
+    @Test
+    @DisplayName("Should filter books by availability")
+    public void findAvailableBooksTest() throws Exception{
+        // cenário
+        Book book = Book.builder()
+                .id(1l)
+                .title(createBook().getTitle())
+                .author(createBook().getAuthor())
+                .isbn(createBook().getIsbn())
+                .available(true)
+                .totalLoans(3l)
+                .build();
+
+        BDDMockito.given( service.find(Mockito.argThat(filter -> Boolean.TRUE.equals(filter.getAvailable())), Mockito.any(Pageable.class), Mockito.eq(true)) )
+                .willReturn( new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?available=true&page=0&size=100"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].available").value(true))
+                .andExpect(jsonPath("content[0].totalLoans").value(3));
+    }
+
+    @Test
+    @DisplayName("Should return the availability of many books by isbn")
+    public void booksAvailabilityTest() throws Exception{
+        // cenário
+        Book available = Book.builder().id(1l).isbn("111").available(true).build();
+        Book loaned = Book.builder().id(2l).isbn("222").available(false).currentLoanId(7l).build();
+
+        BDDMockito.given( service.getBooksByIsbns(Arrays.asList("222", "111", "333")) )
+                .willReturn( Arrays.asList(available, loaned) );
+
+        String json = new ObjectMapper().writeValueAsString(
+                BookAvailabilityRequestDTO.builder().isbns(Arrays.asList("222", "111", "333")).build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/availability"))
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .content(json);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("['111'].bookId").value(1))
+                .andExpect(jsonPath("['111'].available").value(true))
+                .andExpect(jsonPath("['222'].available").value(false))
+                .andExpect(jsonPath("['222'].openLoanId").value(7))
+                .andExpect(jsonPath("['333']").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should get many books by id in request order with the misses")
+    public void getBooksByIdsTest() throws Exception{
+        // cenário
+        Book first = Book.builder().id(1l).isbn("111").title("Contos").build();
+        Book second = Book.builder().id(2l).isbn("222").title("Poemas").build();
+
+        BDDMockito.given( service.getBooksByIds(Arrays.asList(2l, 9l, 1l)) )
+                .willReturn( Arrays.asList(first, second) );
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=2,9,1"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("[0].id").value(2))
+                .andExpect(jsonPath("[0].found").value(true))
+                .andExpect(jsonPath("[0].book.title").value("Poemas"))
+                .andExpect(jsonPath("[1].id").value(9))
+                .andExpect(jsonPath("[1].found").value(false))
+                .andExpect(jsonPath("[1].book").isEmpty())
+                .andExpect(jsonPath("[2].isbn").value("111"));
+    }
+
+    @Test
+    @DisplayName("Should reject a lookup of more books than allowed")
+    public void getTooManyBooksByIdsTest() throws Exception{
+        String ids = LongStream.rangeClosed(1, 201)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=" + ids))
+                .accept(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).getBooksByIds(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Should look up many books by isbn in request order with the misses")
+    public void lookupBooksTest() throws Exception{
+        // cenário
+        Book book = Book.builder().id(1l).isbn("111").title("Contos").build();
+
+        BDDMockito.given( service.getBooksByIsbns(Arrays.asList("333", "111")) )
+                .willReturn( Arrays.asList(book) );
+
+        String json = new ObjectMapper().writeValueAsString(
+                BookLookupRequestDTO.builder().isbns(Arrays.asList("333", "111")).build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .content(json);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].isbn").value("333"))
+                .andExpect(jsonPath("[0].found").value(false))
+                .andExpect(jsonPath("[1].id").value(1))
+                .andExpect(jsonPath("[1].found").value(true))
+                .andExpect(jsonPath("[1].book.title").value("Contos"));
+    }
+
+    @Test
+    @DisplayName("Should list the loans of a book including archived ones")
+    public void loansByBookWithArchivedTest() throws Exception{
+        // cenário
+        Book book = Book.builder().id(1l).isbn("123").build();
+        Loan loan = Loan.builder().id(2l).book(book).customer("Fulano").returned(true).build();
+
+        BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given( loanService.getLoanHistoryByBook(Mockito.eq(book), Mockito.any(Pageable.class), Mockito.eq(true)) )
+                .willReturn( new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1/loans?includeArchived=true&page=0&size=10"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(2));
+
+        Mockito.verify(loanService, Mockito.never()).getLoansByBook(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should list the most loaned books of a window")
+    public void popularBooksTest() throws Exception{
+        // cenário
+        Book book = Book.builder().id(1l).isbn("123").title("Aventuras").build();
+        PopularBookDTO popular = PopularBookDTO.builder().bookId(1l).loans(5l).build();
+        PopularBookDTO deleted = PopularBookDTO.builder().bookId(2l).loans(3l).build();
+
+        BDDMockito.given(popularityService.getRetentionDays()).willReturn(30);
+        BDDMockito.given(popularityService.getPopular(7, 3)).willReturn(Arrays.asList(popular, deleted));
+        BDDMockito.given(service.getBooksByIds(Arrays.asList(1l, 2l))).willReturn(Arrays.asList(book));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/popular?window=7d&limit=3"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].bookId").value(1))
+                .andExpect(jsonPath("[0].isbn").value("123"))
+                .andExpect(jsonPath("[0].loans").value(5))
+                .andExpect(jsonPath("[1].bookId").value(2))
+                .andExpect(jsonPath("[1].isbn").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a popularity window out of the retention")
+    public void popularBooksInvalidWindowTest() throws Exception{
+        BDDMockito.given(popularityService.getRetentionDays()).willReturn(30);
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/popular?window=90d")).accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/popular?window=week")).accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(popularityService, Mockito.never()).getPopular(Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Should suggest books for a prefix")
+    public void suggestTest() throws Exception{
+        // cenário
+        BookSuggestionDTO suggestion = BookSuggestionDTO.builder().id(1l).title("Aventuras de Maria").author("Maria").build();
+        BDDMockito.given(suggestService.getMaxSuggestions()).willReturn(20);
+        BDDMockito.given(suggestService.suggest("aven", 5)).willReturn(Arrays.asList(suggestion));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/suggest?q=aven&limit=5"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].id").value(1))
+                .andExpect(jsonPath("[0].title").value("Aventuras de Maria"));
 
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.anyBoolean());
     }
 
     private BookDTO createBook() {
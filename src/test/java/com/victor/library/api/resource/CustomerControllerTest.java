@@ -0,0 +1,89 @@
+package com.victor.library.api.resource;
+
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.service.CustomerService;
+import com.victor.library.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@WebMvcTest(controllers = {CustomerController.class})
+public class CustomerControllerTest {
+
+    static final String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private LoanService loanService;
+
+    @Test
+    @DisplayName("Should list the loans of a customer")
+    public void loansByCustomerTest() throws Exception {
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+        Book book = Book.builder().id(1l).isbn("123").build();
+        Loan loan = Loan.builder()
+                .id(1l)
+                .book(book)
+                .borrower(customer)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(LocalDate.now())
+                .build();
+
+        BDDMockito.given(customerService.getById(1l)).willReturn(Optional.of(customer));
+        BDDMockito.given(loanService.getLoansByCustomer(Mockito.eq(customer), Mockito.any(Pageable.class), Mockito.eq(true)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(CUSTOMER_API.concat("/1/loans?page=0&size=10"))
+                .accept(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].email").value("fulano@email.com"))
+                .andExpect(jsonPath("content[0].book.isbn").value("123"))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Should return 404 when the customer doesnt exists")
+    public void loansByNonexistentCustomerTest() throws Exception {
+        BDDMockito.given(customerService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans")).accept(APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -1,14 +1,23 @@
 package com.victor.library.api.resource;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.victor.library.api.dto.LoanDTO;
 import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.api.dto.LoanStatisticsDTO;
 import com.victor.library.api.dto.ReturnedLoanDTO;
 import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
 import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.service.BookService;
+import com.victor.library.service.CustomerService;
+import com.victor.library.service.ExportService;
+import com.victor.library.service.LoanEventService;
 import com.victor.library.service.LoanService;
+import com.victor.library.service.LoanStatisticsService;
+import com.victor.library.service.support.ExportFormat;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -21,21 +30,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.Properties;
 
 import static com.victor.library.api.resource.BookControllerTest.BOOK_API;
 import static com.victor.library.service.LoanServiceTest.createLoan;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -58,6 +73,18 @@ public class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private LoanStatisticsService loanStatisticsService;
+
+    @MockBean
+    private LoanEventService loanEventService;
+
+    @MockBean
+    private ExportService exportService;
+
     @Test
     @DisplayName("Should realize a new loan")
     public void createLoanTest() throws Exception {
@@ -81,7 +108,10 @@ public class LoanControllerTest {
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+
         BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Optional.of(book));
+        BDDMockito.given(customerService.getOrCreate("Fulano", "fulano@email.com")).willReturn(customer);
         BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(loan);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -93,6 +123,10 @@ public class LoanControllerTest {
         mvc.perform(request)
                 .andExpect( status().isCreated() )
                 .andExpect( content().string("1") );
+
+        Mockito.verify(loanService).save(Mockito.argThat(saving ->
+                customer.equals(saving.getBorrower()) && "fulano@email.com".equals(saving.getCustomerEmail())
+                        && "123".equals(saving.getIsbn())));
     }
 
     @Test
@@ -202,7 +236,7 @@ public class LoanControllerTest {
         loan.setId(id);
         loan.setBook(book);
 
-        BDDMockito.given( loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)) )
+        BDDMockito.given( loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class), Mockito.eq(true)) )
                 .willReturn( new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
 
         String queryString = String.format("?isbn=%s&customer=%s&page=0&size=10",
@@ -217,8 +251,130 @@ public class LoanControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(10))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(10))
+                .andExpect(jsonPath("number").value(0));
+
+    }
+
+    @Test
+    @DisplayName("Should filter loans without the total elements")
+    public void findLoansWithoutTotalTest() throws Exception{
+        // cenário
+        Book book = Book.builder().id(1l).isbn("321").build();
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setBook(book);
+
+        BDDMockito.given( loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class), Mockito.eq(false)) )
+                .willReturn( new SliceImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=321&page=0&size=10&withTotal=false"))
+                .accept(APPLICATION_JSON);
+
+        // execução e verificações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("totalElements").doesNotExist())
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("pageable").doesNotExist())
+                .andExpect(jsonPath("size").value(10));
+    }
 
+    @Test
+    @DisplayName("Should filter loans answering in CBOR when requested")
+    public void findLoansAsCborTest() throws Exception{
+        // cenário
+        Book book = Book.builder().id(1l).isbn("321").build();
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setBook(book);
+
+        BDDMockito.given( loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class), Mockito.eq(true)) )
+                .willReturn( new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=321&page=0&size=10"))
+                .accept(cbor);
+
+        // execução e verificações
+        MvcResult result = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(cbor))
+                .andReturn();
+
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+        assertThat(page.get("content").size()).isEqualTo(1);
+        assertThat(page.get("totalElements").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should get the loan statistics")
+    public void statisticsTest() throws Exception{
+        // cenário
+        LoanStatisticsDTO statistics = LoanStatisticsDTO.builder()
+                .openLoans(5l)
+                .overdueLoans(2l)
+                .loansPerDay(Collections.singletonMap(LocalDate.of(2021, 12, 1), 3l))
+                .build();
+        BDDMockito.given(loanStatisticsService.getMaxDays()).willReturn(30);
+        BDDMockito.given(loanStatisticsService.getStatistics(7)).willReturn(statistics);
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/statistics")).accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("openLoans").value(5))
+                .andExpect(jsonPath("overdueLoans").value(2))
+                .andExpect(jsonPath("loansPerDay['2021-12-01']").value(3));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/statistics?days=90")).accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should subscribe to the loan events resuming after the last event id")
+    public void eventsTest() throws Exception{
+        BDDMockito.given(loanEventService.subscribe(Mockito.anyLong())).willReturn(new SseEmitter());
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/events"))
+                        .header("Last-Event-ID", "42")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        Mockito.verify(loanEventService).subscribe(42l);
+    }
+
+    @Test
+    @DisplayName("Should export the filtered loans as CSV")
+    public void exportTest() throws Exception{
+        // cenário
+        BDDMockito.given(exportService.exportLoans(Mockito.any(LoanFilterDTO.class), Mockito.eq(ExportFormat.CSV), Mockito.any()))
+                .willAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(2);
+                    out.write("id\r\n1\r\n".getBytes());
+                    return 1l;
+                });
+
+        // execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?customer=Fulano&format=csv")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=loans.csv"))
+                .andExpect(content().string("id\r\n1\r\n"));
+        Mockito.verify(exportService).exportLoans(
+                Mockito.argThat(filter -> "Fulano".equals(filter.getCustomer())), Mockito.eq(ExportFormat.CSV), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Should not export in an unknown format")
+    public void exportUnknownFormatTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -0,0 +1,297 @@
+package com.victor.library.api.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.api.dto.LoanDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.model.repository.CustomerRepository;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.support.QueryCount;
+import com.victor.library.support.QueryCountConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static com.victor.library.api.resource.BookControllerTest.BOOK_API;
+import static com.victor.library.api.resource.CustomerControllerTest.CUSTOMER_API;
+import static com.victor.library.api.resource.LoanControllerTest.LOAN_API;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements each endpoint runs against the real repositories,
+ * so an added lazy load or per-row query fails the build instead of reaching
+ * production.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountConfig.class)
+public class QueryBudgetTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    BookCache bookCache;
+
+    @BeforeEach
+    public void setUp() {
+        loanRepository.deleteAll();
+        customerRepository.deleteAll();
+        // the isbn of a deleted book would still resolve to its cached copy
+        bookRepository.findAll().forEach(book -> bookCache.evict(book.getId()));
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should get a book with one query and then from the cache")
+    public void getBookBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        QueryCount.reset();
+
+        mvc.perform(get(BOOK_API + "/" + book.getId())).andExpect(status().isOk());
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+
+        QueryCount.reset();
+        mvc.perform(get(BOOK_API + "/" + book.getId())).andExpect(status().isOk());
+
+        QueryCount.assertThatQueries().total(0);
+    }
+
+    @Test
+    @DisplayName("Should filter loans with one query whatever the number of books")
+    public void findLoansBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        Book other = saveBook("321");
+        loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        loanRepository.save(Loan.builder().book(other).customer("Fulano").loanDate(LocalDate.now()).build());
+        QueryCount.reset();
+
+        mvc.perform(get(LOAN_API + "?customer=Fulano&page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)));
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+    }
+
+    @Test
+    @DisplayName("Should skip the count query when the total is not asked for")
+    public void findLoansWithoutTotalBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        Book other = saveBook("321");
+        loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        loanRepository.save(Loan.builder().book(other).customer("Fulano").loanDate(LocalDate.now()).build());
+        QueryCount.reset();
+
+        mvc.perform(get(LOAN_API + "?customer=Fulano&page=0&size=1&withTotal=false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+    }
+
+    @Test
+    @DisplayName("Should filter loans by isbn or customer with one query whatever the number of books")
+    public void findLoansByIsbnOrCustomerBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        Book other = saveBook("321");
+        loanRepository.save(Loan.builder().book(book).isbn("123").customer("Ciclano").loanDate(LocalDate.now()).build());
+        loanRepository.save(Loan.builder().book(other).isbn("321").customer("Fulano").loanDate(LocalDate.now()).build());
+        QueryCount.reset();
+
+        mvc.perform(get(LOAN_API + "?isbn=123&customer=Fulano&page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)));
+
+        // the union with the books joined; the page is not full, so no count query
+        QueryCount.assertThatQueries().selects(1).total(1);
+
+        QueryCount.reset();
+        mvc.perform(get(LOAN_API + "?isbn=123&customer=Fulano&page=0&size=1&withTotal=false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true));
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+    }
+
+    @Test
+    @DisplayName("Should create a loan within its query budget")
+    public void createLoanBudgetTest() throws Exception {
+        saveBook("123");
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Fulano").email("fulano@email.com").build();
+        QueryCount.reset();
+
+        mvc.perform(post(LOAN_API)
+                        .contentType(APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isCreated());
+
+        // book by isbn, customer by email, open loan check; customer, loan and event log;
+        // book availability, loan statistics and loans of the day
+        QueryCount.assertThatQueries().selects(3).inserts(3).updates(3).deletes(0);
+    }
+
+    @Test
+    @DisplayName("Should find books with one query")
+    public void findBooksBudgetTest() throws Exception {
+        saveBook("123");
+        saveBook("321");
+        QueryCount.reset();
+
+        mvc.perform(get(BOOK_API + "?author=victor&page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)));
+
+        // the page is not full, so Spring Data skips the count query
+        QueryCount.assertThatQueries().selects(1).total(1);
+    }
+
+    @Test
+    @DisplayName("Should get many books by id with one query and then from the cache")
+    public void getBooksByIdsBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        Book other = saveBook("321");
+        String ids = book.getId() + "," + other.getId();
+        QueryCount.reset();
+
+        mvc.perform(get(BOOK_API + "?ids=" + ids))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+
+        QueryCount.reset();
+        mvc.perform(get(BOOK_API + "?ids=" + ids)).andExpect(status().isOk());
+
+        QueryCount.assertThatQueries().total(0);
+    }
+
+    @Test
+    @DisplayName("Should look books up by isbn with one query and then from the cache")
+    public void lookupBooksBudgetTest() throws Exception {
+        saveBook("123");
+        saveBook("321");
+        String request = "{\"isbns\": [\"123\", \"321\", \"999\"]}";
+        QueryCount.reset();
+
+        mvc.perform(post(BOOK_API + "/lookup").contentType(APPLICATION_JSON).content(request))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
+
+        QueryCount.assertThatQueries().selects(1).total(1);
+
+        QueryCount.reset();
+        mvc.perform(post(BOOK_API + "/lookup").contentType(APPLICATION_JSON).content(request))
+                .andExpect(status().isOk());
+
+        // the unknown isbn is looked up again, the cached ones are not
+        QueryCount.assertThatQueries().selects(1).total(1);
+    }
+
+    @Test
+    @DisplayName("Should list the loans of a book with one query besides the book")
+    public void loansByBookBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        loanRepository.save(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+        QueryCount.reset();
+
+        mvc.perform(get(BOOK_API + "/" + book.getId() + "/loans?page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)));
+
+        // the book, then its loans, whose book is the one already loaded
+        QueryCount.assertThatQueries().selects(2).total(2);
+    }
+
+    @Test
+    @DisplayName("Should list the loans of a customer with one query whatever the number of books")
+    public void loansByCustomerBudgetTest() throws Exception {
+        Book book = saveBook("123");
+        Book other = saveBook("321");
+        Customer customer = customerRepository.save(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        loanRepository.save(Loan.builder().book(book).borrower(customer).customer("Fulano").loanDate(LocalDate.now()).build());
+        loanRepository.save(Loan.builder().book(other).borrower(customer).customer("Fulano").loanDate(LocalDate.now()).build());
+        QueryCount.reset();
+
+        mvc.perform(get(CUSTOMER_API + "/" + customer.getId() + "/loans?page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)));
+
+        // the customer, then the loans with their books
+        QueryCount.assertThatQueries().selects(2).total(2);
+    }
+
+    @Test
+    @DisplayName("Should create a book within its query budget")
+    public void createBookBudgetTest() throws Exception {
+        String book = "{\"isbn\": \"123\", \"title\": \"Contos\", \"author\": \"Victor\"}";
+        QueryCount.reset();
+
+        mvc.perform(post(BOOK_API).contentType(APPLICATION_JSON).content(book))
+                .andExpect(status().isCreated());
+
+        // duplicated isbn check and the book
+        QueryCount.assertThatQueries().selects(1).inserts(1).updates(0).deletes(0);
+    }
+
+    @Test
+    @DisplayName("Should return a loan within its query budget")
+    public void returnLoanBudgetTest() throws Exception {
+        saveBook("123");
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Fulano").email("fulano@email.com").build();
+        String id = mvc.perform(post(LOAN_API)
+                        .contentType(APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        QueryCount.reset();
+
+        mvc.perform(patch(LOAN_API + "/" + id)
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"returned\": true}"))
+                .andExpect(status().isOk());
+
+        // the loan with its book; the event log; the loan, book availability and loan statistics
+        QueryCount.assertThatQueries().selects(1).inserts(1).updates(3).deletes(0);
+    }
+
+    private Book saveBook(String isbn) {
+        Book book = bookRepository.save(Book.builder().isbn(isbn).title("Contos").author("Victor").build());
+        bookCache.evict(book.getId());
+        return book;
+    }
+}
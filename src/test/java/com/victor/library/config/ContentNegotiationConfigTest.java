@@ -0,0 +1,88 @@
+package com.victor.library.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.api.dto.BookDTO;
+import com.victor.library.api.dto.LoanDTO;
+import com.victor.library.api.dto.PageResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentNegotiationConfigTest {
+
+    private final ContentNegotiationConfig config = new ContentNegotiationConfig();
+
+    private final ObjectMapper json = new Jackson2ObjectMapperBuilder().build();
+    private final ObjectMapper cbor = config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+    private final ObjectMapper smile = config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+
+    @Test
+    @DisplayName("Should read back the same page from every format")
+    public void roundTripTest() throws Exception {
+        PageResponse<LoanDTO> page = createPage(20);
+
+        for (ObjectMapper mapper : new ObjectMapper[]{ json, cbor, smile }) {
+            PageResponse<?> read = mapper.readValue(mapper.writeValueAsBytes(page), PageResponse.class);
+            assertThat(read.getContent()).hasSize(20);
+            assertThat(read.getTotalElements()).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    @DisplayName("Should put fewer bytes on the wire with binary formats")
+    public void bytesOnTheWireTest() throws Exception {
+        PageResponse<LoanDTO> page = createPage(200);
+
+        byte[] jsonBytes = json.writeValueAsBytes(page);
+        byte[] cborBytes = cbor.writeValueAsBytes(page);
+        byte[] smileBytes = smile.writeValueAsBytes(page);
+
+        assertThat(cborBytes.length).isLessThan(jsonBytes.length);
+        assertThat(smileBytes.length).isLessThan(jsonBytes.length);
+        assertThat(gzip(jsonBytes).length).isLessThan(jsonBytes.length / 2);
+    }
+
+    private byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private PageResponse<LoanDTO> createPage(int size) {
+        List<LoanDTO> content = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            BookDTO book = BookDTO.builder()
+                    .id((long) i)
+                    .title("Aventuras no SN " + i)
+                    .author("João")
+                    .isbn("4422" + i)
+                    .available(false)
+                    .totalLoans(3l)
+                    .build();
+
+            content.add(LoanDTO.builder()
+                    .id((long) i)
+                    .isbn(book.getIsbn())
+                    .customer("Fulano " + i)
+                    .email("fulano" + i + "@email.com")
+                    .book(book)
+                    .build());
+        }
+        return PageResponse.<LoanDTO>builder()
+                .content(content)
+                .number(0)
+                .size(size)
+                .totalElements(1000l)
+                .build();
+    }
+}
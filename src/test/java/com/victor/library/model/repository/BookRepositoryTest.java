@@ -10,6 +10,8 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -95,6 +97,90 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Should mark an available book as loaned")
+    public void markAsLoanedTest() {
+        Book book = createNewBook();
+        book.setAvailable(true);
+        book.setTotalLoans(0L);
+        entityManager.persist(book);
+
+        int updated = repository.markAsLoaned(book.getId(), 10l);
+        entityManager.clear();
+
+        Book loanedBook = entityManager.find(Book.class, book.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(loanedBook.getAvailable()).isFalse();
+        assertThat(loanedBook.getCurrentLoanId()).isEqualTo(10l);
+        assertThat(loanedBook.getTotalLoans()).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Should not mark a book as loaned when it is already loaned")
+    public void markUnavailableBookAsLoanedTest() {
+        Book book = createNewBook();
+        book.setAvailable(false);
+        book.setCurrentLoanId(10l);
+        book.setTotalLoans(1L);
+        entityManager.persist(book);
+
+        int updated = repository.markAsLoaned(book.getId(), 11l);
+
+        assertThat(updated).isZero();
+    }
+
+    @Test
+    @DisplayName("Should mark a book as available when its current loan is returned")
+    public void markAsReturnedTest() {
+        Book book = createNewBook();
+        book.setAvailable(false);
+        book.setCurrentLoanId(10l);
+        book.setTotalLoans(1L);
+        entityManager.persist(book);
+
+        int updated = repository.markAsReturned(book.getId(), 10l);
+        entityManager.clear();
+
+        Book returnedBook = entityManager.find(Book.class, book.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(returnedBook.getAvailable()).isTrue();
+        assertThat(returnedBook.getCurrentLoanId()).isNull();
+        assertThat(returnedBook.getTotalLoans()).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Should keep the loan state when saving a copy read before the loan")
+    public void saveStaleCopyTest() {
+        Book book = createNewBook();
+        book.setAvailable(true);
+        book.setTotalLoans(0L);
+        entityManager.persist(book);
+        Book copy = book.copy();
+
+        repository.markAsLoaned(book.getId(), 10l);
+        copy.setTitle("Outro titulo");
+        repository.save(copy);
+        entityManager.flush();
+        entityManager.clear();
+
+        Book savedBook = entityManager.find(Book.class, book.getId());
+        assertThat(savedBook.getTitle()).isEqualTo("Outro titulo");
+        assertThat(savedBook.getAvailable()).isFalse();
+        assertThat(savedBook.getCurrentLoanId()).isEqualTo(10l);
+        assertThat(savedBook.getTotalLoans()).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Should find books by a list of isbns")
+    public void findByIsbnInTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        List<Book> books = repository.findByIsbnIn(Arrays.asList("1234", "4321"));
+
+        assertThat(books).hasSize(1).contains(book);
+    }
+
     private Book createNewBook() {
         return Book.builder()
                 .title("Contos")
@@ -1,26 +1,41 @@
 package com.victor.library.model.repository;
 
+import com.victor.library.api.dto.LoanFilterDTO;
+import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.LoanArchive;
+import com.victor.library.support.QueryCount;
+import com.victor.library.support.QueryCountConfig;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @DataJpaTest
+@Import(QueryCountConfig.class)
 public class LoanRepositoryTest {
 
     @Autowired
@@ -65,7 +80,8 @@ public class LoanRepositoryTest {
 
         entityManager.persist(loan);
 
-        Page<Loan> result = repository.findByBookIsbnOrCustomer("1234", "Fulano", PageRequest.of(0, 10));
+        Page<Loan> result = repository.findByBookIsbnOrCustomer(
+                LoanFilterDTO.builder().isbn("1234").customer("Fulano").build(), PageRequest.of(0, 10));
 
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent()).contains(loan);
@@ -112,6 +128,350 @@ public class LoanRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Should agree on the overdue boundary between the late loans and the overdue count")
+    public void overdueBoundaryTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        LocalDate today = LocalDate.now();
+        Loan lastOverdue = Loan.builder().book(book).customer("Fulano")
+                .loanDate(Loan.overdueThrough(today)).build();
+        Loan firstOnTime = Loan.builder().book(book).customer("Fulano")
+                .loanDate(Loan.overdueThrough(today).plusDays(1)).build();
+        entityManager.persist(lastOverdue);
+        entityManager.persist(firstOnTime);
+
+        List<Loan> late = repository.findByLoanDateLessThanAndNotReturned(Loan.overdueThrough(today));
+        long overdue = repository.countOpenByLoanDateBetween(today.minusYears(1), Loan.overdueThrough(today));
+
+        assertThat(late).containsExactly(lastOverdue);
+        assertThat(overdue).isEqualTo(late.size());
+    }
+
+    @Test
+    @DisplayName("Should obtain returned loans older than a date to archive")
+    public void findReturnedBeforeTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan oldReturned = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(200)).returned(true).build();
+        Loan oldOpen = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(200)).build();
+        Loan recentReturned = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now()).returned(true).build();
+        entityManager.persist(oldReturned);
+        entityManager.persist(oldOpen);
+        entityManager.persist(recentReturned);
+
+        List<Loan> result = repository.findReturnedBefore(LocalDate.now().minusDays(180), PageRequest.of(0, 10));
+
+        assertThat(result).hasSize(1).contains(oldReturned);
+    }
+
+    @Test
+    @DisplayName("Should delete loans by id")
+    public void deleteByIdInTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(loan);
+
+        int deleted = repository.deleteByIdIn(Arrays.asList(loan.getId()));
+
+        assertThat(deleted).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should obtain the loan history of a book with archived loans")
+    public void findHistoryByBookTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(loan);
+
+        LoanArchive archived = LoanArchive.builder()
+                .id(loan.getId() + 1000)
+                .customer("Ciclano")
+                .bookId(book.getId())
+                .loanDate(LocalDate.now().minusDays(300))
+                .returned(true)
+                .archivedAt(LocalDateTime.now())
+                .build();
+        entityManager.persistAndFlush(archived);
+
+        Page<LoanHistory> result = repository.findHistoryByBook(book.getId(), PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getContent().get(0).getCustomer()).isEqualTo("Fulano");
+        assertThat(result.getContent().get(0).getArchived()).isFalse();
+        assertThat(result.getContent().get(1).getCustomer()).isEqualTo("Ciclano");
+        assertThat(result.getContent().get(1).getArchived()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should load a page of loans with their books in a single query")
+    public void findBySpecificationQueryBudgetTest() {
+        Book book = createNewBook();
+        Book other = Book.builder().title("Poemas").author("Victor").isbn("4321").build();
+        entityManager.persist(book);
+        entityManager.persist(other);
+        entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+        QueryCount.reset();
+
+        Page<Loan> result = repository.findAll(LoanSpecifications.matching(new LoanFilterDTO()), PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).extracting(loan -> loan.getBook().getIsbn()).containsOnly("1234", "4321");
+        // the page is not full, so Spring Data skips the count query
+        QueryCount.assertThatQueries().selects(1);
+    }
+
+    @Test
+    @DisplayName("Should join the book only once when filtering by isbn and customer")
+    public void findBySpecificationSingleBookJoinTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Loan loan = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("1234").customer("Fulano").returned(false).build();
+        QueryCount.reset();
+
+        Page<Loan> matching = repository.findAll(LoanSpecifications.matching(filter), PageRequest.of(0, 10));
+        List<Loan> exporting;
+        try (Stream<Loan> loans = repository.streamAll(LoanSpecifications.exporting(filter), 10)) {
+            exporting = loans.collect(Collectors.toList());
+        }
+
+        assertThat(matching.getContent()).extracting(Loan::getId).containsExactly(loan.getId());
+        assertThat(exporting).extracting(Loan::getId).containsExactly(loan.getId());
+        assertThat(QueryCount.statements()).hasSize(2)
+                .allSatisfy(sql -> assertThat(sql.toLowerCase().split("join tb_book", -1)).hasSize(2));
+    }
+
+    @Test
+    @DisplayName("Should search loans only by the filters provided")
+    public void findBySpecificationTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan open = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(2)).build();
+        Loan returned = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(10)).returned(true).build();
+        Loan other = Loan.builder().book(book).customer("Ciclano")
+                .loanDate(LocalDate.now()).build();
+        entityManager.persist(open);
+        entityManager.persist(returned);
+        entityManager.persist(other);
+
+        LoanFilterDTO filter = LoanFilterDTO.builder()
+                .customer("Fulano")
+                .loanDateFrom(LocalDate.now().minusDays(5))
+                .returned(false)
+                .build();
+
+        Page<Loan> result = repository.findAll(LoanSpecifications.matching(filter), PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).hasSize(1).contains(open);
+    }
+
+    @Test
+    @DisplayName("Should apply the date and returned criteria to both sides of the isbn or customer search")
+    public void findByBookIsbnOrCustomerWithCriteriaTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan returned = Loan.builder().book(book).customer("Ciclano")
+                .loanDate(LocalDate.now()).returned(true).build();
+        Loan open = Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now()).build();
+        entityManager.persist(returned);
+        entityManager.persist(open);
+
+        Page<Loan> result = repository.findByBookIsbnOrCustomer(
+                LoanFilterDTO.builder().isbn("1234").customer("Fulano").returned(true).build(), PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).hasSize(1).contains(returned);
+        assertThat(result.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should page the isbn or customer search by loan date and id, or by the requested order")
+    public void findByBookIsbnOrCustomerOrderTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan older = Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now().minusDays(1)).build();
+        Loan first = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        Loan second = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(second);
+        entityManager.persist(older);
+        entityManager.persist(first);
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("1234").customer("Fulano").build();
+
+        Page<Loan> firstPage = repository.findByBookIsbnOrCustomer(filter, PageRequest.of(0, 2));
+        Page<Loan> secondPage = repository.findByBookIsbnOrCustomer(filter, PageRequest.of(1, 2));
+        Page<Loan> newestFirst = repository.findByBookIsbnOrCustomer(filter,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "loanDate")));
+
+        assertThat(firstPage.getContent()).containsExactly(older, second);
+        assertThat(secondPage.getContent()).containsExactly(first);
+        assertThat(newestFirst.getContent()).containsExactly(second, first, older);
+        assertThatThrownBy(() -> repository.findByBookIsbnOrCustomer(filter,
+                PageRequest.of(0, 3, Sort.by("customer"))))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("Should read a slice of the isbn or customer union without counting it")
+    public void findSliceByBookIsbnOrCustomerTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Loan older = Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now().minusDays(1)).build();
+        Loan newer = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(older);
+        entityManager.persist(newer);
+        entityManager.flush();
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("1234").customer("Fulano").build();
+        QueryCount.reset();
+
+        Slice<Loan> firstSlice = repository.findSliceByBookIsbnOrCustomer(filter, PageRequest.of(0, 1));
+        Slice<Loan> lastSlice = repository.findSliceByBookIsbnOrCustomer(filter, PageRequest.of(1, 1));
+
+        assertThat(firstSlice.getContent()).containsExactly(older);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(lastSlice.getContent()).containsExactly(newer);
+        assertThat(lastSlice.hasNext()).isFalse();
+        QueryCount.assertThatQueries().selects(2).total(2);
+    }
+
+    @Test
+    @DisplayName("Should page the loans of a customer newest first")
+    public void findByBorrowerTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Customer customer = Customer.builder().name("Fulano").email("fulano@email.com").build();
+        entityManager.persist(customer);
+
+        Loan older = Loan.builder().book(book).borrower(customer).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(10)).returned(true).build();
+        Loan newer = Loan.builder().book(book).borrower(customer).customer("Fulano")
+                .loanDate(LocalDate.now()).build();
+        entityManager.persist(older);
+        entityManager.persist(newer);
+
+        Page<Loan> result = repository.findByBorrower(customer,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "loanDate")));
+
+        assertThat(result.getContent()).containsExactly(newer, older);
+    }
+
+    @Test
+    @DisplayName("Should walk the customers with late loans by id range")
+    public void findLateBorrowerIdsTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Customer ciclano = Customer.builder().name("Ciclano").email("ciclano@email.com").build();
+        Customer fulano = Customer.builder().name("Fulano").email("fulano@email.com").build();
+        entityManager.persist(ciclano);
+        entityManager.persist(fulano);
+
+        entityManager.persist(Loan.builder().book(book).borrower(ciclano).customer("Ciclano")
+                .loanDate(LocalDate.now().minusDays(6)).build());
+        entityManager.persist(Loan.builder().book(book).borrower(ciclano).customer("Ciclano")
+                .loanDate(LocalDate.now().minusDays(5)).build());
+        entityManager.persist(Loan.builder().book(book).borrower(fulano).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(5)).build());
+        Loan legacy = entityManager.persist(Loan.builder().book(book).customer("Legado").customerEmail("legado@email.com")
+                .loanDate(LocalDate.now().minusDays(5)).build());
+        Loan otherLegacy = entityManager.persist(Loan.builder().book(book).customer("Antigo").customerEmail("antigo@email.com")
+                .loanDate(LocalDate.now().minusDays(5)).build());
+        entityManager.persist(Loan.builder().book(book).customer("Legado").customerEmail("legado@email.com")
+                .loanDate(LocalDate.now().minusDays(6)).build());
+
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(4);
+        List<Long> firstChunk = repository.findLateBorrowerIds(threeDaysAgo, 0l, fulano.getId(), PageRequest.of(0, 1));
+        List<Long> secondChunk = repository.findLateBorrowerIds(threeDaysAgo, firstChunk.get(0), fulano.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstChunk).containsExactly(ciclano.getId());
+        assertThat(secondChunk).containsExactly(fulano.getId());
+        assertThat(repository.findLateLoansByBorrowerIds(threeDaysAgo, firstChunk)).hasSize(2);
+
+        List<Long> firstLegacyChunk = repository.findFirstLateLoanIdsWithoutBorrower(threeDaysAgo, 0l, PageRequest.of(0, 1));
+        List<Long> secondLegacyChunk = repository.findFirstLateLoanIdsWithoutBorrower(threeDaysAgo, firstLegacyChunk.get(0), PageRequest.of(0, 1));
+        List<Long> lastLegacyChunk = repository.findFirstLateLoanIdsWithoutBorrower(threeDaysAgo, secondLegacyChunk.get(0), PageRequest.of(0, 1));
+
+        assertThat(firstLegacyChunk).containsExactly(legacy.getId());
+        assertThat(secondLegacyChunk).containsExactly(otherLegacy.getId());
+        assertThat(lastLegacyChunk).isEmpty();
+        assertThat(repository.findLateLoansWithoutBorrowerByFirstLoanIds(threeDaysAgo, firstLegacyChunk))
+                .extracting(Loan::getCustomerEmail).containsExactly("legado@email.com", "legado@email.com");
+    }
+
+    @Test
+    @DisplayName("Should stream the loans of a book isbn or of a customer in id order")
+    public void streamAllTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Book other = Book.builder().title("Poemas").author("Maria").isbn("4321").build();
+        entityManager.persist(other);
+
+        Loan byIsbn = entityManager.persist(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+        Loan byCustomer = entityManager.persist(Loan.builder().book(other).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Beltrano").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("1234").customer("Fulano").returned(false).build();
+        List<Loan> result;
+        try (Stream<Loan> loans = repository.streamAll(LoanSpecifications.exporting(filter), 10)) {
+            result = loans.collect(Collectors.toList());
+        }
+
+        assertThat(result).extracting(Loan::getId).containsExactly(byIsbn.getId(), byCustomer.getId());
+        assertThat(result).extracting(loan -> loan.getBook().getIsbn()).containsExactly("1234", "4321");
+    }
+
+    @Test
+    @DisplayName("Should copy the isbn of the book into a new loan")
+    public void loanIsbnTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+
+        Loan loan = entityManager.persistFlushFind(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        assertThat(loan.getIsbn()).isEqualTo("1234");
+    }
+
+    @Test
+    @DisplayName("Should backfill the isbn of loans stored without it")
+    public void copyIsbnFromBookTest() {
+        Book book = createNewBook();
+        entityManager.persist(book);
+        Loan first = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan second = entityManager.persist(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("update loan set ds_isbn = null").executeUpdate();
+        entityManager.clear();
+
+        List<Long> ids = repository.findIdsWithoutIsbn(first.getId(), PageRequest.of(0, 10));
+        int updated = repository.copyIsbnFromBook(ids);
+        entityManager.clear();
+
+        assertThat(ids).containsExactly(second.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(repository.findById(second.getId())).hasValueSatisfying(loan -> assertThat(loan.getIsbn()).isEqualTo("1234"));
+        assertThat(repository.findIdsWithoutIsbn(0L, PageRequest.of(0, 10))).containsExactly(first.getId());
+    }
+
     private Book createNewBook() {
         return Book.builder()
                 .title("Contos")
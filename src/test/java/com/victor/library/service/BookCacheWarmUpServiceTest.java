@@ -0,0 +1,90 @@
+package com.victor.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.service.support.BookCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookCacheWarmUpServiceTest {
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should preload the books of the last snapshot")
+    public void warmUpTest() {
+        // cenário
+        String snapshotFile = directory.resolve("book-cache.json").toString();
+        Book book = Book.builder().id(1l).isbn("123").title("Contos").build();
+        Book other = Book.builder().id(2l).isbn("321").title("Poemas").build();
+
+        BookCache previousCache = new BookCache("books", 100, Duration.ofMinutes(10));
+        previousCache.put(book, previousCache.stamp());
+        previousCache.put(other, previousCache.stamp());
+        BookCacheWarmUpService previousRun = new BookCacheWarmUpService(previousCache, bookRepository, new ObjectMapper(), snapshotFile);
+        previousRun.warmUp();
+        previousRun.writeSnapshot();
+
+        when(bookRepository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(book, other));
+        when(bookRepository.findByIsbnIn(Mockito.anyCollection())).thenReturn(Arrays.asList(book, other));
+        BookCache cache = new BookCache("books", 100, Duration.ofMinutes(10));
+        BookCacheWarmUpService service = new BookCacheWarmUpService(cache, bookRepository, new ObjectMapper(), snapshotFile);
+
+        // execução
+        service.warmUp();
+
+        // verificações
+        assertThat(service.getState()).isEqualTo(BookCacheWarmUpService.State.DONE);
+        assertThat(cache.getById(1l)).isEqualTo(book);
+        assertThat(cache.getByIsbn("321")).isEqualTo(other);
+        verify(bookRepository).findAllById(Mockito.argThat(ids -> ids.iterator().hasNext()));
+    }
+
+    @Test
+    @DisplayName("Should finish the warm up without a snapshot")
+    public void warmUpWithoutSnapshotTest() {
+        BookCacheWarmUpService service = new BookCacheWarmUpService(new BookCache("books", 100, Duration.ofMinutes(10)),
+                bookRepository,
+                new ObjectMapper(), directory.resolve("missing.json").toString());
+
+        int warmedUp = service.warmUp();
+
+        assertThat(warmedUp).isZero();
+        assertThat(service.getState()).isEqualTo(BookCacheWarmUpService.State.DONE);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    @DisplayName("Should not replace the snapshot before the warm up is over")
+    public void keepSnapshotWhileWarmingTest() {
+        Path snapshotFile = directory.resolve("book-cache.json");
+        BookCache cache = new BookCache("books", 100, Duration.ofMinutes(10));
+        cache.put(Book.builder().id(1l).isbn("123").build(), cache.stamp());
+        BookCacheWarmUpService service = new BookCacheWarmUpService(cache, bookRepository, new ObjectMapper(), snapshotFile.toString());
+
+        service.writeSnapshot();
+
+        assertThat(Files.exists(snapshotFile)).isFalse();
+    }
+}
@@ -4,6 +4,8 @@ import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
 import com.victor.library.model.repository.BookRepository;
 import com.victor.library.service.impl.BookServiceImpl;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.service.support.SingleFlight;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,9 +18,13 @@ import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -33,12 +39,18 @@ public class BookServiceTest {
 
     BookService service;
 
+    BookCache bookCache;
+
     @MockBean
     BookRepository repository;
 
+    @MockBean
+    SuggestService suggestService;
+
     @BeforeEach
     public void setUp(){
-        this.service = new BookServiceImpl( repository );
+        this.bookCache = new BookCache("books", 100, Duration.ofMinutes(10));
+        this.service = new BookServiceImpl( repository, new SingleFlight<>("book.getById"), bookCache, suggestService );
     }
 
     @Test
@@ -63,6 +75,8 @@ public class BookServiceTest {
         assertThat(savedBook.getIsbn()).isEqualTo("1234");
         assertThat(savedBook.getAuthor()).isEqualTo("Maria");
         assertThat(savedBook.getTitle()).isEqualTo("Aventuras de Maria");
+        assertThat(book.getAvailable()).isTrue();
+        assertThat(book.getTotalLoans()).isZero();
     }
 
     @Test
@@ -104,6 +118,19 @@ public class BookServiceTest {
         assertThat( foundBook.get().getIsbn() ).isEqualTo(book.getIsbn());
     }
 
+    @Test
+    @DisplayName("Should give each caller its own copy of a loaded book")
+    public void getBookByIdCopyTest() {
+        Book book = createValidBook();
+        Mockito.when(repository.findById(book.getId())).thenReturn(Optional.of(book));
+
+        Book first = service.getById(book.getId()).get();
+        Book second = service.getById(book.getId()).get();
+
+        assertThat(first).isEqualTo(book).isNotSameAs(book);
+        assertThat(second).isEqualTo(book).isNotSameAs(first);
+    }
+
     @Test
     @DisplayName("Should return empty when look for a book by id who doesnt exists")
     public void getNonexistentBookByIdTest() {
@@ -194,7 +221,7 @@ public class BookServiceTest {
                 .thenReturn(page);
 
         // execução
-        Page<Book> result = service.find(book, pageRequest);
+        Page<Book> result = (Page<Book>) service.find(book, pageRequest, true);
 
         // verificações
         assertThat(result.getTotalElements()).isEqualTo(1);
@@ -203,6 +230,53 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Should filter books without counting them when the total is not asked for")
+    public void findBookWithoutTotalTest(){
+        // cenário
+        Book book = createValidBook();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Mockito.when(repository.findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(book), pageRequest, false));
+
+        // execução
+        Slice<Book> result = service.find(book, pageRequest, false);
+
+        // verificações
+        assertThat(result).isNotInstanceOf(Page.class);
+        assertThat(result.getContent()).containsExactly(book);
+        verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should get many books by isbn with a single query")
+    public void getBooksByIsbnsTest(){
+        List<String> isbns = Arrays.asList("123", "321", "123");
+        List<Book> books = Arrays.asList(Book.builder().id(1l).isbn("123").build());
+        Mockito.when(repository.findByIsbnIn(Mockito.anyCollection())).thenReturn(books);
+
+        List<Book> result = service.getBooksByIsbns(isbns);
+
+        assertThat(result).isEqualTo(books);
+        verify(repository, times(1)).findByIsbnIn(Mockito.argThat(collection -> collection.size() == 2));
+    }
+
+    @Test
+    @DisplayName("Should get many books by id from the cache and a single query")
+    public void getBooksByIdsTest(){
+        Book cached = Book.builder().id(1l).isbn("111").build();
+        Book loaded = Book.builder().id(2l).isbn("222").build();
+        bookCache.put(cached, bookCache.stamp());
+        Mockito.when(repository.findByIdIn(Mockito.anyCollection())).thenReturn(Arrays.asList(loaded));
+
+        List<Book> result = service.getBooksByIds(Arrays.asList(2l, 1l, 3l, 2l));
+
+        assertThat(result).containsExactlyInAnyOrder(cached, loaded);
+        assertThat(bookCache.getById(2l)).isEqualTo(loaded);
+        verify(repository, times(1)).findByIdIn(Mockito.argThat(collection ->
+                collection.size() == 2 && collection.containsAll(Arrays.asList(2l, 3l))));
+    }
+
     @Test
     @DisplayName("Should get a book by Isbn")
     public void getBookByIsbnTest(){
@@ -219,6 +293,34 @@ public class BookServiceTest {
         verify(repository, times(1)).findByIsbn(isbn);
     }
 
+    @Test
+    @DisplayName("Should serve a book already loaded from the cache")
+    public void getCachedBookTest() {
+        Book book = createValidBook();
+        Mockito.when(repository.findById(book.getId())).thenReturn(Optional.of(book));
+
+        service.getById(book.getId());
+        Optional<Book> byId = service.getById(book.getId());
+        Optional<Book> byIsbn = service.getBookByIsbn(book.getIsbn());
+
+        assertThat(byId).contains(book);
+        assertThat(byIsbn).contains(book);
+        verify(repository, times(1)).findById(book.getId());
+        verify(repository, Mockito.never()).findByIsbn(Mockito.anyString());
+    }
+
+    @Test
+    @DisplayName("Should evict an updated book from the cache")
+    public void evictUpdatedBookTest() {
+        Book book = createValidBook();
+        bookCache.put(book, bookCache.stamp());
+        Mockito.when(repository.save(book)).thenReturn(book);
+
+        service.update(book);
+
+        assertThat(bookCache.getById(book.getId())).isNull();
+    }
+
     private Book createValidBook() {
         return Book.builder()
                 .id(10L)
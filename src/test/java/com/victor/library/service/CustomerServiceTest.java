@@ -0,0 +1,73 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.repository.CustomerRepository;
+import com.victor.library.service.impl.CustomerServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class CustomerServiceTest {
+
+    CustomerService service;
+
+    @MockBean
+    CustomerRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new CustomerServiceImpl(repository);
+    }
+
+    @Test
+    @DisplayName("Should return the customer already registered with the email")
+    public void getExistingCustomerTest() {
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+        when(repository.findByEmail("fulano@email.com")).thenReturn(Optional.of(customer));
+
+        Customer result = service.getOrCreate("Fulano", "fulano@email.com");
+
+        assertThat(result).isEqualTo(customer);
+        verify(repository, never()).saveAndFlush(Mockito.any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("Should register a new customer")
+    public void createCustomerTest() {
+        Customer saved = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+        when(repository.findByEmail("fulano@email.com")).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(Mockito.any(Customer.class))).thenReturn(saved);
+
+        Customer result = service.getOrCreate("Fulano", "fulano@email.com");
+
+        assertThat(result.getId()).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Should return the customer registered concurrently with the same email")
+    public void concurrentlyCreatedCustomerTest() {
+        Customer concurrent = Customer.builder().id(2l).name("Fulano").email("fulano@email.com").build();
+        when(repository.findByEmail("fulano@email.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(concurrent));
+        when(repository.saveAndFlush(Mockito.any(Customer.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_customer_email"));
+
+        Customer result = service.getOrCreate("Fulano", "fulano@email.com");
+
+        assertThat(result.getId()).isEqualTo(2l);
+    }
+}
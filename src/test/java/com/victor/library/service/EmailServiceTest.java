@@ -0,0 +1,111 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.PendingMail;
+import com.victor.library.model.repository.PendingMailRepository;
+import com.victor.library.service.impl.EmailServiceImpl;
+import com.victor.library.service.support.CircuitBreaker;
+import com.victor.library.service.support.RateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class EmailServiceTest {
+
+    EmailService service;
+
+    CircuitBreaker circuitBreaker;
+
+    @MockBean
+    JavaMailSender javaMailSender;
+
+    @MockBean
+    PendingMailRepository pendingMailRepository;
+
+    @BeforeEach
+    public void setUp(){
+        this.circuitBreaker = new CircuitBreaker("mail", 2, Duration.ofMinutes(1), Clock.systemUTC());
+        this.service = new EmailServiceImpl(javaMailSender, circuitBreaker,
+                new RateLimiter("mail", 100, Clock.systemUTC()), pendingMailRepository);
+    }
+
+    @Test
+    @DisplayName("Should send a mail")
+    public void sendMailTest() {
+        service.sendMails(Arrays.asList("fulano@email.com"), "message");
+
+        verify(javaMailSender).send(Mockito.any(SimpleMailMessage.class));
+        verify(pendingMailRepository, never()).save(Mockito.any(PendingMail.class));
+    }
+
+    @Test
+    @DisplayName("Should park the mail when the relay fails")
+    public void parkFailedMailTest() {
+        doThrow(new MailSendException("relay down")).when(javaMailSender).send(Mockito.any(SimpleMailMessage.class));
+
+        service.sendMails(Arrays.asList("fulano@email.com"), "message");
+
+        verify(pendingMailRepository).save(Mockito.argThat(pending ->
+                "fulano@email.com".equals(pending.getRecipients()) && pending.getAttempts() == 0));
+    }
+
+    @Test
+    @DisplayName("Should fail fast without calling the relay while the circuit is open")
+    public void openCircuitTest() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        service.sendMails(Arrays.asList("fulano@email.com"), "message");
+
+        verify(javaMailSender, never()).send(Mockito.any(SimpleMailMessage.class));
+        verify(pendingMailRepository).save(Mockito.any(PendingMail.class));
+    }
+
+    @Test
+    @DisplayName("Should record a failure when the relay throws something other than a mail exception")
+    public void unexpectedFailureTest() {
+        doThrow(new IllegalStateException("broken session")).when(javaMailSender).send(Mockito.any(SimpleMailMessage.class));
+
+        assertThatThrownBy(() -> service.sendMails(Arrays.asList("fulano@email.com"), "message"))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(circuitBreaker.getConsecutiveFailures()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should redeliver parked mails and remove them")
+    public void redeliverPendingTest() {
+        PendingMail pending = PendingMail.builder()
+                .id(1l)
+                .recipients("fulano@email.com,ciclano@email.com")
+                .subject("subject")
+                .message("message")
+                .attempts(1)
+                .build();
+        when(pendingMailRepository.findByOrderByIdAsc(Mockito.any(Pageable.class))).thenReturn(Arrays.asList(pending));
+
+        int delivered = service.redeliverPending();
+
+        assertThat(delivered).isEqualTo(1);
+        verify(javaMailSender).send(Mockito.argThat((SimpleMailMessage message) -> message.getTo().length == 2));
+        verify(pendingMailRepository).delete(pending);
+    }
+}
@@ -0,0 +1,218 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.LateLoanNoticeDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.ScanCheckpoint;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.ScanCheckpointRepository;
+import com.victor.library.service.impl.LateLoanScanServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LateLoanScanServiceTest {
+
+    LateLoanScanService service;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    ScanCheckpointRepository checkpointRepository;
+
+    LocalDate today = LocalDate.of(2021, 12, 10);
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new LateLoanScanServiceImpl(loanRepository, checkpointRepository);
+        when(checkpointRepository.saveAll(Mockito.anyIterable())).thenAnswer(AdditionalAnswers.returnsFirstArg());
+        when(checkpointRepository.claim(Mockito.any(), Mockito.anyString(), Mockito.any(LocalDateTime.class), Mockito.any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(checkpointRepository.saveProgress(Mockito.any(), Mockito.anyString(), Mockito.any(), Mockito.anyBoolean(),
+                Mockito.any(LocalDateTime.class), Mockito.any()))
+                .thenReturn(1);
+        when(loanRepository.findFirstLateLoanIdsWithoutBorrower(Mockito.any(LocalDate.class), Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(loanRepository.findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.anyLong(), Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    @DisplayName("Should split the customers in partitions and notify each customer once")
+    public void scanTest() {
+        // cenário
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Collections.emptyList());
+        when(loanRepository.findMinLateBorrowerId(Loan.overdueThrough(today))).thenReturn(1l);
+        when(loanRepository.findMaxLateBorrowerId(Loan.overdueThrough(today))).thenReturn(8l);
+        when(loanRepository.findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(0l), Mockito.eq(2l), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(1l));
+        when(loanRepository.findLateLoansByBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(Arrays.asList(1l))))
+                .thenReturn(Arrays.asList(createLoan(1l), createLoan(1l)));
+        List<LateLoanNoticeDTO> notices = new CopyOnWriteArrayList<>();
+
+        // execução
+        int sent = service.scan(today, notices::add);
+
+        // verificações
+        assertThat(sent).isEqualTo(1);
+        assertThat(notices).hasSize(1);
+        assertThat(notices.get(0).getLoans()).hasSize(2);
+        verify(checkpointRepository).saveAll(Mockito.argThat(checkpoints -> StreamSupport.stream(checkpoints.spliterator(), false).count() == 5));
+        verify(checkpointRepository, times(5)).saveProgress(Mockito.any(), Mockito.anyString(), Mockito.any(), Mockito.eq(true),
+                Mockito.any(LocalDateTime.class), Mockito.isNull());
+    }
+
+    @Test
+    @DisplayName("Should resume only the unfinished partitions from their last customer")
+    public void resumeTest() {
+        // cenário
+        ScanCheckpoint finished = ScanCheckpoint.builder().partitionIndex(1).lowId(1l).highId(10l).lastId(10l).done(true).build();
+        ScanCheckpoint halfway = ScanCheckpoint.builder().partitionIndex(2).lowId(11l).highId(20l).lastId(15l).done(false).build();
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Arrays.asList(finished, halfway));
+
+        // execução
+        service.resume(today, notice -> {});
+
+        // verificações
+        verify(loanRepository).findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(15l), Mockito.eq(20l), Mockito.any(Pageable.class));
+        verify(loanRepository, never()).findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(10l), Mockito.anyLong(), Mockito.any(Pageable.class));
+        verify(checkpointRepository, never()).saveAll(Mockito.anyIterable());
+        assertThat(halfway.getDone()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should walk the loans without customer from the last loan id of their partition")
+    public void resumeLegacyTest() {
+        // cenário
+        ScanCheckpoint legacy = ScanCheckpoint.builder().partitionIndex(0).lastId(7l).done(false).build();
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Arrays.asList(legacy));
+        when(loanRepository.findFirstLateLoanIdsWithoutBorrower(Mockito.any(LocalDate.class), Mockito.eq(7l), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(9l));
+        when(loanRepository.findLateLoansWithoutBorrowerByFirstLoanIds(Mockito.any(LocalDate.class), Mockito.eq(Arrays.asList(9l))))
+                .thenReturn(Arrays.asList(createLegacyLoan(), createLegacyLoan()));
+        List<LateLoanNoticeDTO> notices = new CopyOnWriteArrayList<>();
+
+        // execução
+        int sent = service.resume(today, notices::add);
+
+        // verificações
+        assertThat(sent).isEqualTo(1);
+        assertThat(notices.get(0).getLoans()).hasSize(2);
+        assertThat(legacy.getLastId()).isEqualTo(9l);
+        assertThat(legacy.getDone()).isTrue();
+        verify(loanRepository, never()).findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should keep the checkpoint of a failed partition and finish the others")
+    public void failedPartitionTest() {
+        // cenário
+        ScanCheckpoint failing = ScanCheckpoint.builder().partitionIndex(1).lowId(1l).highId(10l).lastId(0l).done(false).build();
+        ScanCheckpoint other = ScanCheckpoint.builder().partitionIndex(2).lowId(11l).highId(20l).lastId(10l).done(false).build();
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Arrays.asList(failing, other));
+        when(loanRepository.findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(0l), Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        // execução
+        service.resume(today, notice -> {});
+
+        // verificações
+        assertThat(failing.getDone()).isFalse();
+        assertThat(failing.getLastId()).isZero();
+        assertThat(other.getDone()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should leave a partition claimed by another run to that run")
+    public void claimedPartitionTest() {
+        // cenário
+        ScanCheckpoint claimed = ScanCheckpoint.builder().id(1l).partitionIndex(1).lowId(1l).highId(10l).lastId(0l).done(false).build();
+        ScanCheckpoint free = ScanCheckpoint.builder().id(2l).partitionIndex(2).lowId(11l).highId(20l).lastId(10l).done(false).build();
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Arrays.asList(claimed, free));
+        when(checkpointRepository.claim(Mockito.eq(1l), Mockito.anyString(), Mockito.any(LocalDateTime.class), Mockito.any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        // execução
+        service.resume(today, notice -> {});
+
+        // verificações
+        verify(loanRepository, never()).findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(0l), Mockito.anyLong(), Mockito.any(Pageable.class));
+        verify(loanRepository).findLateBorrowerIds(Mockito.any(LocalDate.class), Mockito.eq(10l), Mockito.eq(20l), Mockito.any(Pageable.class));
+        assertThat(claimed.getDone()).isFalse();
+        assertThat(free.getDone()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should stop a partition taken over by another run")
+    public void lostClaimTest() {
+        // cenário
+        ScanCheckpoint checkpoint = ScanCheckpoint.builder().id(1l).partitionIndex(1).lowId(1l).highId(10l).lastId(0l).done(false).build();
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Arrays.asList(checkpoint));
+        when(checkpointRepository.saveProgress(Mockito.any(), Mockito.anyString(), Mockito.any(), Mockito.anyBoolean(),
+                Mockito.any(LocalDateTime.class), Mockito.any()))
+                .thenReturn(0);
+
+        // execução
+        service.resume(today, notice -> {});
+
+        // verificações
+        assertThat(checkpoint.getDone()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should not scan when there is no run to resume")
+    public void nothingToResumeTest() {
+        when(checkpointRepository.findByScanAndRunDateOrderByPartitionIndex(Mockito.anyString(), Mockito.eq(today)))
+                .thenReturn(Collections.emptyList());
+
+        int sent = service.resume(today, notice -> {});
+
+        assertThat(sent).isZero();
+        verifyNoInteractions(loanRepository);
+    }
+
+    private Loan createLegacyLoan() {
+        return Loan.builder()
+                .book(Book.builder().id(1l).title("Contos").isbn("123").build())
+                .customer("Legado")
+                .customerEmail("legado@email.com")
+                .loanDate(today.minusDays(6))
+                .build();
+    }
+
+    private Loan createLoan(Long customerId) {
+        return Loan.builder()
+                .book(Book.builder().id(1l).title("Contos").isbn("123").build())
+                .borrower(Customer.builder().id(customerId).name("Fulano").email("fulano@email.com").build())
+                .loanDate(today.minusDays(6))
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.LoanArchiveRepository;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.impl.LoanArchiveServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanArchiveServiceTest {
+
+    LoanArchiveService service;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new LoanArchiveServiceImpl(loanRepository, archiveRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should move returned loans to the archive")
+    public void archiveReturnedLoansTest() {
+        Loan loan = Loan.builder()
+                .id(1l)
+                .book(Book.builder().id(1l).build())
+                .customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(200))
+                .returned(true)
+                .build();
+
+        when(loanRepository.findReturnedBefore(Mockito.any(LocalDate.class), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(loan));
+
+        int archived = service.archiveReturnedLoans();
+
+        assertThat(archived).isEqualTo(1);
+        verify(archiveRepository).saveAll(Mockito.argThat(archives -> archives.iterator().next().getId().equals(1l)));
+        verify(loanRepository).deleteByIdIn(Arrays.asList(1l));
+    }
+
+    @Test
+    @DisplayName("Should not touch the archive when there is nothing to move")
+    public void nothingToArchiveTest() {
+        when(loanRepository.findReturnedBefore(Mockito.any(LocalDate.class), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        int archived = service.archiveReturnedLoans();
+
+        assertThat(archived).isZero();
+        verify(archiveRepository, never()).saveAll(Mockito.anyIterable());
+        verify(loanRepository, never()).deleteByIdIn(Mockito.anyCollection());
+    }
+}
@@ -0,0 +1,121 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.LoanEventLog;
+import com.victor.library.model.repository.LoanEventLogRepository;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.impl.LoanEventServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanEventServiceTest {
+
+    LoanEventServiceImpl service;
+
+    @MockBean
+    LoanEventLogRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.service = new LoanEventServiceImpl(repository);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should write every loan change to the event log and give it a position once committed")
+    public void onLoanEventTest() {
+        when(repository.save(Mockito.any(LoanEventLog.class))).thenAnswer(invocation -> {
+            LoanEventLog entry = invocation.getArgument(0);
+            entry.setId(1l);
+            return entry;
+        });
+        when(repository.assignSequence(1l, 1l)).thenReturn(1);
+
+        service.onLoanEvent(LoanEvent.builder()
+                .type(LoanEvent.Type.RETURNED).loanId(2l).bookId(3l).loanDate(LocalDate.now()).build());
+
+        verify(repository).save(Mockito.argThat(entry ->
+                entry.getType().equals("RETURNED") && entry.getLoanId() == 2l && entry.getCreatedAt() != null));
+        verify(repository, timeout(1000)).assignSequence(1l, 1l);
+    }
+
+    @Test
+    @DisplayName("Should number the events in commit order, after the ones left without a position")
+    public void sequenceTest() {
+        // cenário
+        when(repository.findMaxSequence()).thenReturn(7l);
+        when(repository.findBySequenceIsNullOrderByIdAsc())
+                .thenReturn(Collections.singletonList(LoanEventLog.builder().id(20l).type("CREATED").build()));
+        when(repository.assignSequence(Mockito.anyLong(), Mockito.anyLong())).thenReturn(1);
+        AtomicLong ids = new AtomicLong(32);
+        when(repository.save(Mockito.any(LoanEventLog.class))).thenAnswer(invocation -> {
+            LoanEventLog entry = invocation.getArgument(0);
+            entry.setId(ids.decrementAndGet());
+            return entry;
+        });
+
+        // execução: id 31 commits before id 30
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).loanId(1l).build());
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).loanId(2l).build());
+
+        // verificações
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository, timeout(1000)).assignSequence(20l, 8l);
+        inOrder.verify(repository, timeout(1000)).assignSequence(31l, 9l);
+        inOrder.verify(repository, timeout(1000)).assignSequence(30l, 10l);
+    }
+
+    @Test
+    @DisplayName("Should replay the events after the last position to a new subscriber")
+    public void subscribeTest() {
+        when(repository.findBySequenceGreaterThanOrderBySequenceAsc(Mockito.eq(10l), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(LoanEventLog.builder().id(40l).sequence(11l).type("CREATED").build()));
+
+        service.subscribe(10l);
+
+        verify(repository, timeout(1000)).findBySequenceGreaterThanOrderBySequenceAsc(Mockito.eq(10l), Mockito.any(Pageable.class));
+        verify(repository, after(200).never()).findBySequenceGreaterThanOrderBySequenceAsc(Mockito.eq(11l), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should not replay anything to a subscriber without a position")
+    public void subscribeWithoutPositionTest() {
+        service.subscribe(null);
+
+        verify(repository, after(200).never()).findBySequenceGreaterThanOrderBySequenceAsc(Mockito.any(), Mockito.any(Pageable.class));
+        assertThat(service.getSubscribers()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent events in the log")
+    public void pruneTest() {
+        when(repository.findMaxId()).thenReturn(10500l);
+        when(repository.deleteUpTo(500l)).thenReturn(500);
+
+        int pruned = service.prune();
+
+        assertThat(pruned).isEqualTo(500);
+        verify(repository).deleteUpTo(500l);
+    }
+}
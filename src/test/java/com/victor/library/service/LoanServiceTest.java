@@ -1,24 +1,36 @@
 package com.victor.library.service;
 
+import com.victor.library.api.dto.LateLoanNoticeDTO;
 import com.victor.library.api.dto.LoanFilterDTO;
 import com.victor.library.exception.BusinessException;
 import com.victor.library.model.entity.Book;
+import com.victor.library.model.entity.Customer;
 import com.victor.library.model.entity.Loan;
+import com.victor.library.model.repository.BookRepository;
 import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.service.event.LoanEvent;
 import com.victor.library.service.impl.LoanServiceImpl;
+import com.victor.library.service.support.BookCache;
+import com.victor.library.service.support.SingleFlight;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
@@ -37,9 +49,16 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    BookRepository bookRepository;
+
+    ApplicationEventPublisher eventPublisher;
+
     @BeforeEach
     public void setUp(){
-        this.service = new LoanServiceImpl(repository);
+        this.eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        this.service = new LoanServiceImpl(repository, bookRepository, new SingleFlight<>("loan.getLoansByBook"),
+                new BookCache("books", 100, Duration.ofMinutes(10)), eventPublisher);
     }
 
     @Test
@@ -61,6 +80,7 @@ public class LoanServiceTest {
 
         when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
         when(repository.save(saving)).thenReturn(savedLoan);
+        when(bookRepository.markAsLoaned(1l, 1l)).thenReturn(1);
 
         Loan loan = service.save(saving);
 
@@ -68,6 +88,37 @@ public class LoanServiceTest {
         assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+
+        verify(bookRepository).markAsLoaned(1l, 1l);
+        verify(eventPublisher).publishEvent(LoanEvent.of(LoanEvent.Type.CREATED, savedLoan));
+    }
+
+    @Test
+    @DisplayName("Should throw a business exception if book was loaned concurrently")
+    public void concurrentlyLoanedBookSaveTest(){
+        Book book = Book.builder().id(1l).build();
+        Loan saving = Loan.builder()
+                .book(book)
+                .customer("Fulano")
+                .loanDate(LocalDate.now())
+                .build();
+
+        Loan savedLoan = Loan.builder()
+                .id(1l)
+                .book(book)
+                .customer("Fulano")
+                .loanDate(LocalDate.now())
+                .build();
+
+        when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
+        when(repository.save(saving)).thenReturn(savedLoan);
+        when(bookRepository.markAsLoaned(1l, 1l)).thenReturn(0);
+
+        Throwable exception = catchThrowable(()-> service.save(saving));
+
+        assertThat(exception)
+            .isInstanceOf(BusinessException.class)
+            .hasMessage("Book already loaned");
     }
 
     @Test
@@ -128,6 +179,23 @@ public class LoanServiceTest {
 
         assertThat(updatedLoan.getReturned()).isTrue();
         verify(repository).save(loan);
+        verify(bookRepository).markAsReturned(1l, 1l);
+    }
+
+    @Test
+    @DisplayName("Should publish a return only the first time a loan is returned")
+    public void returnedLoanEventTest() {
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setReturned(true);
+
+        when(repository.save(loan)).thenReturn(loan);
+        when(bookRepository.markAsReturned(1l, 1l)).thenReturn(1, 0);
+
+        service.update(loan);
+        service.update(loan);
+
+        verify(eventPublisher, times(1)).publishEvent(LoanEvent.of(LoanEvent.Type.RETURNED, loan));
     }
 
     @Test
@@ -143,13 +211,10 @@ public class LoanServiceTest {
         List<Loan> list = Arrays.asList(loan);
 
         Page<Loan> page = new PageImpl<Loan>(list, pageRequest, list.size());
-        Mockito.when(repository.findByBookIsbnOrCustomer(
-                Mockito.anyString(),
-                Mockito.anyString(),
-                Mockito.any(PageRequest.class))).thenReturn(page);
+        Mockito.when(repository.findByBookIsbnOrCustomer(dto, pageRequest)).thenReturn(page);
 
         // execução
-        Page<Loan> result = service.find(dto, pageRequest);
+        Page<Loan> result = (Page<Loan>) service.find(dto, pageRequest, true);
 
         // verificações
         assertThat(result.getTotalElements()).isEqualTo(1);
@@ -158,6 +223,68 @@ public class LoanServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Should filter loan by a single property without the isbn or customer union")
+    public void findLoanByCustomerTest(){
+        // cenário
+        LoanFilterDTO dto = LoanFilterDTO.builder().customer("Fulano").returned(false).build();
+
+        Loan loan = createLoan();
+        loan.setId(1l);
+
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        List<Loan> list = Arrays.asList(loan);
+
+        Page<Loan> page = new PageImpl<Loan>(list, pageRequest, list.size());
+        Mockito.when(repository.findAll(Mockito.any(Specification.class), Mockito.any(PageRequest.class)))
+                .thenReturn(page);
+
+        // execução
+        Slice<Loan> result = service.find(dto, pageRequest, true);
+
+        // verificações
+        assertThat(result.getContent()).isEqualTo(list);
+        verify(repository, never()).findByBookIsbnOrCustomer(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Should filter loans without counting them when the total is not asked for")
+    public void findLoanWithoutTotalTest(){
+        // cenário
+        LoanFilterDTO dto = LoanFilterDTO.builder().customer("Fulano").build();
+        LoanFilterDTO union = LoanFilterDTO.builder().customer("Fulano").isbn("123").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Slice<Loan> slice = new SliceImpl<>(Arrays.asList(createLoan()), pageRequest, true);
+        Mockito.when(repository.findSlice(Mockito.any(Specification.class), Mockito.eq(pageRequest))).thenReturn(slice);
+        Mockito.when(repository.findSliceByBookIsbnOrCustomer(union, pageRequest)).thenReturn(slice);
+
+        // execução
+        Slice<Loan> result = service.find(dto, pageRequest, false);
+        Slice<Loan> unionResult = service.find(union, pageRequest, false);
+
+        // verificações
+        assertThat(result.hasNext()).isTrue();
+        assertThat(unionResult).isSameAs(slice);
+        verify(repository, never()).findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class));
+        verify(repository, never()).findByBookIsbnOrCustomer(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Should get the open loans due on a date grouped by customer")
+    public void getLoansDueByCustomerTest(){
+        Loan loan = createLoan();
+        loan.setBorrower(Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build());
+        LocalDate dueDate = LocalDate.of(2021, 12, 10);
+
+        when(repository.findOpenLoansByLoanDateOrderByCustomer(LocalDate.of(2021, 12, 6)))
+                .thenReturn(Arrays.asList(loan));
+
+        List<LateLoanNoticeDTO> notices = service.getLoansDueByCustomer(dueDate);
+
+        assertThat(notices).hasSize(1);
+        assertThat(notices.get(0).getLoans()).containsExactly(loan);
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder().id(1l).build();
         return Loan.builder()
@@ -166,4 +293,20 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
     }
+
+    @Test
+    @DisplayName("Should give each caller its own loans of a book")
+    public void getLoansByBookCopyTest() {
+        Book book = Book.builder().id(1l).isbn("123").build();
+        Loan loan = Loan.builder().id(1l).book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        when(repository.findByBook(book, pageRequest)).thenReturn(new PageImpl<>(Arrays.asList(loan), pageRequest, 1));
+
+        Page<Loan> result = (Page<Loan>) service.getLoansByBook(book, pageRequest, true);
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent()).containsExactly(loan);
+        assertThat(result.getContent().get(0)).isNotSameAs(loan);
+        assertThat(result.getContent().get(0).getBook()).isNotSameAs(book);
+    }
 }
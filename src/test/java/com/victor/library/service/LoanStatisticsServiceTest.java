@@ -0,0 +1,177 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.LoanStatisticsDTO;
+import com.victor.library.model.entity.Loan;
+import com.victor.library.model.entity.LoanDailyCount;
+import com.victor.library.model.entity.LoanStatistics;
+import com.victor.library.model.repository.LoanDailyCountRepository;
+import com.victor.library.model.repository.LoanDayCount;
+import com.victor.library.model.repository.LoanRepository;
+import com.victor.library.model.repository.LoanStatisticsRepository;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.impl.LoanStatisticsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanStatisticsServiceTest {
+
+    LoanStatisticsServiceImpl service;
+
+    @MockBean
+    LoanStatisticsRepository statisticsRepository;
+
+    @MockBean
+    LoanDailyCountRepository dailyCountRepository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.service = new LoanStatisticsServiceImpl(statisticsRepository, dailyCountRepository, loanRepository,
+                Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Should update the stripe of the loan when a loan is created or returned")
+    public void onLoanEventTest() {
+        LocalDate today = LocalDate.now();
+        when(dailyCountRepository.increment(today, 3, 1)).thenReturn(1);
+
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).loanId(19l).bookId(1l).loanDate(today).build());
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.RETURNED).loanId(19l).bookId(1l).loanDate(today).build());
+
+        // 19 % 16 stripes
+        verify(statisticsRepository).loanCreated(3l, today);
+        verify(statisticsRepository).loanReturned(3l, today);
+        verify(dailyCountRepository).increment(today, 3, 1);
+        verify(dailyCountRepository, never()).save(Mockito.any(LoanDailyCount.class));
+    }
+
+    @Test
+    @DisplayName("Should count the loans that became overdue since the last roll on the head stripe")
+    public void rollForwardTest() {
+        // cenário
+        LocalDate today = LocalDate.of(2021, 12, 10);
+        List<LoanStatistics> stripes = stripes(LocalDate.of(2021, 12, 4));
+        stripes.get(0).setOverdueLoans(2l);
+        when(statisticsRepository.findAllForUpdate()).thenReturn(stripes);
+        // the same boundary the late notices use
+        LocalDate overdueThrough = Loan.overdueThrough(today);
+        when(loanRepository.countOpenByLoanDateBetween(LocalDate.of(2021, 12, 5), overdueThrough))
+                .thenReturn(3l);
+
+        // execução
+        service.rollForward(today);
+
+        // verificações
+        assertThat(stripes.get(0).getOverdueLoans()).isEqualTo(5l);
+        assertThat(stripes.get(1).getOverdueLoans()).isEqualTo(0l);
+        assertThat(stripes).extracting(LoanStatistics::getOverdueThrough).containsOnly(overdueThrough);
+        verify(statisticsRepository).saveAll(stripes);
+        ArgumentCaptor<Iterable<LoanDailyCount>> days = ArgumentCaptor.forClass(Iterable.class);
+        verify(dailyCountRepository).saveAll(days.capture());
+        // today and tomorrow for every stripe
+        assertThat(days.getValue()).hasSize(2 * 16);
+    }
+
+    @Test
+    @DisplayName("Should recount the counters from the loan table when a stripe is missing")
+    public void rollForwardMissingStripeTest() {
+        // cenário
+        LocalDate today = LocalDate.of(2021, 12, 10);
+        List<LoanStatistics> stripes = stripes(Loan.overdueThrough(today));
+        stripes.remove(15);
+        when(statisticsRepository.findAllForUpdate()).thenReturn(stripes);
+
+        // execução
+        service.rollForward(today);
+
+        // verificações
+        verify(loanRepository).countOpen();
+        ArgumentCaptor<Iterable<LoanStatistics>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(statisticsRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(16);
+    }
+
+    @Test
+    @DisplayName("Should recount the counters from the loan table onto the head stripe")
+    public void reconcileTest() {
+        // cenário
+        LocalDate today = LocalDate.of(2021, 12, 10);
+        List<LoanStatistics> stripes = stripes(LocalDate.of(2021, 12, 6));
+        stripes.get(0).setOpenLoans(6l);
+        stripes.get(5).setOpenLoans(4l);
+        stripes.get(5).setOverdueLoans(2l);
+        when(statisticsRepository.findAllForUpdate()).thenReturn(stripes);
+        when(loanRepository.countOpen()).thenReturn(8l);
+        when(loanRepository.countOpenByLoanDateBetween(Mockito.any(LocalDate.class), Mockito.eq(LocalDate.of(2021, 12, 6))))
+                .thenReturn(1l);
+
+        // execução
+        service.reconcile(today);
+
+        // verificações
+        assertThat(stripes.get(0).getOpenLoans()).isEqualTo(8l);
+        assertThat(stripes.get(0).getOverdueLoans()).isEqualTo(1l);
+        assertThat(stripes.get(0).getReconciledAt()).isNotNull();
+        assertThat(stripes.get(5).getOpenLoans()).isEqualTo(0l);
+        assertThat(stripes.get(5).getOverdueLoans()).isEqualTo(0l);
+        ArgumentCaptor<Iterable<LoanDailyCount>> days = ArgumentCaptor.forClass(Iterable.class);
+        verify(dailyCountRepository, atLeastOnce()).saveAll(days.capture());
+        // 30 days of 16 stripes
+        assertThat(days.getAllValues().get(0)).hasSize(30 * 16);
+    }
+
+    @Test
+    @DisplayName("Should read the statistics summed over the stripes with a zero for days without loans")
+    public void getStatisticsTest() {
+        LocalDate today = LocalDate.now();
+        List<LoanStatistics> stripes = stripes(Loan.overdueThrough(today));
+        stripes.get(0).setOpenLoans(2l);
+        stripes.get(0).setOverdueLoans(1l);
+        stripes.get(7).setOpenLoans(1l);
+        when(statisticsRepository.findAll()).thenReturn(stripes);
+        LoanDayCount loansToday = Mockito.mock(LoanDayCount.class);
+        when(loansToday.getLoanDate()).thenReturn(today);
+        when(loansToday.getLoans()).thenReturn(2l);
+        when(dailyCountRepository.sumByDayBetween(today.minusDays(2), today))
+                .thenReturn(Arrays.asList(loansToday));
+
+        LoanStatisticsDTO result = service.getStatistics(3);
+
+        assertThat(result.getOpenLoans()).isEqualTo(3l);
+        assertThat(result.getOverdueLoans()).isEqualTo(1l);
+        assertThat(result.getOverdueAsOf()).isEqualTo(today);
+        assertThat(result.getLoansPerDay()).containsExactly(
+                entry(today.minusDays(2), 0l), entry(today.minusDays(1), 0l), entry(today, 2l));
+    }
+
+    private List<LoanStatistics> stripes(LocalDate overdueThrough) {
+        List<LoanStatistics> stripes = new ArrayList<>();
+        for (long id = 0; id < 16; id++) {
+            stripes.add(LoanStatistics.builder()
+                    .id(id).openLoans(0l).overdueLoans(0l).overdueThrough(overdueThrough).build());
+        }
+        return stripes;
+    }
+}
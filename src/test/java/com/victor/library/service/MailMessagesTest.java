@@ -0,0 +1,33 @@
+package com.victor.library.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = ConfigDataApplicationContextInitializer.class)
+public class MailMessagesTest {
+
+    @Value("${application.mail.lateloans.message}")
+    String lateLoansMessage;
+
+    @Value("${application.mail.duesoon.message}")
+    String dueSoonMessage;
+
+    @Test
+    @DisplayName("Should read the accented mail texts from application.properties")
+    public void mailMessagesTest() {
+        assertThat(lateLoansMessage)
+                .isEqualTo("Atenção, Você tem um emprestimo atrasado, favor devolver o livro mais rápido possível");
+        assertThat(dueSoonMessage)
+                .isEqualTo("Lembrete: o prazo do seu empréstimo termina amanhã, lembre-se de devolver o livro");
+    }
+}
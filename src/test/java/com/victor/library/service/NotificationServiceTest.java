@@ -0,0 +1,90 @@
+package com.victor.library.service;
+
+import com.victor.library.model.entity.ScheduledMail;
+import com.victor.library.model.repository.ScheduledMailRepository;
+import com.victor.library.service.impl.NotificationServiceImpl;
+import com.victor.library.service.support.RateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class NotificationServiceTest {
+
+    NotificationService service;
+
+    @MockBean
+    ScheduledMailRepository repository;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new NotificationServiceImpl(repository, emailService, new RateLimiter("mail", 2, Clock.systemUTC()));
+    }
+
+    @Test
+    @DisplayName("Should spread the customers over the window")
+    public void scheduleTest() {
+        LocalDate day = LocalDate.of(2021, 12, 10);
+        LocalDateTime windowStart = day.atTime(8, 0);
+        LocalDateTime windowEnd = day.atTime(18, 0);
+
+        Set<LocalDateTime> slots = new HashSet<>();
+        for (long customerId = 1; customerId <= 20; customerId++) {
+            slots.add(service.schedule(day, customerId, "fulano@email.com", "subject", "message"));
+        }
+
+        assertThat(slots).allMatch(at -> !at.isBefore(windowStart) && at.isBefore(windowEnd));
+        assertThat(slots.size()).isGreaterThan(10);
+        verify(repository, times(20)).save(Mockito.any(ScheduledMail.class));
+    }
+
+    @Test
+    @DisplayName("Should always put a customer in the same slot")
+    public void stableSlotTest() {
+        LocalDate day = LocalDate.of(2021, 12, 10);
+
+        LocalDateTime first = service.schedule(day, 42l, "fulano@email.com", "subject", "message");
+        LocalDateTime second = service.schedule(day.plusDays(1), 42l, "fulano@email.com", "subject", "message");
+
+        assertThat(second).isEqualTo(first.plusDays(1));
+    }
+
+    @Test
+    @DisplayName("Should send the due mails no faster than the send rate")
+    public void dispatchDueTest() {
+        ScheduledMail first = ScheduledMail.builder().id(1l).recipients("fulano@email.com").subject("s").message("m").build();
+        ScheduledMail second = ScheduledMail.builder().id(2l).recipients("ciclano@email.com").subject("s").message("m").build();
+        ScheduledMail third = ScheduledMail.builder().id(3l).recipients("beltrano@email.com").subject("s").message("m").build();
+        when(repository.findByScheduledAtLessThanEqualOrderByScheduledAtAsc(Mockito.any(LocalDateTime.class), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(first, second, third));
+
+        int dispatched = service.dispatchDue();
+
+        assertThat(dispatched).isEqualTo(2);
+        verify(emailService).sendMails(Arrays.asList("fulano@email.com"), "s", "m");
+        verify(emailService).sendMails(Arrays.asList("ciclano@email.com"), "s", "m");
+        verify(repository).delete(first);
+        verify(repository).delete(second);
+        verify(repository, never()).delete(third);
+    }
+}
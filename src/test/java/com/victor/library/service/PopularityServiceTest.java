@@ -0,0 +1,103 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.PopularBookDTO;
+import com.victor.library.model.entity.PopularityBucket;
+import com.victor.library.model.repository.PopularityBucketRepository;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.impl.PopularityServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class PopularityServiceTest {
+
+    PopularityServiceImpl service;
+
+    @MockBean
+    PopularityBucketRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.service = new PopularityServiceImpl(repository, Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Should rank the books loaned inside the window")
+    public void getPopularTest() {
+        // cenário
+        LocalDate today = LocalDate.now();
+        service.record(1l, today);
+        service.record(2l, today);
+        service.record(2l, today.minusDays(2));
+        service.record(3l, today.minusDays(10));
+        service.record(3l, today.minusDays(10));
+        service.record(3l, today.minusDays(10));
+
+        // execução
+        List<PopularBookDTO> week = service.getPopular(7, 10);
+        List<PopularBookDTO> month = service.getPopular(30, 1);
+
+        // verificações
+        assertThat(week).extracting(PopularBookDTO::getBookId).containsExactly(2l, 1l);
+        assertThat(week).extracting(PopularBookDTO::getLoans).containsExactly(2l, 1l);
+        assertThat(month).extracting(PopularBookDTO::getBookId).containsExactly(3l);
+    }
+
+    @Test
+    @DisplayName("Should count only created loans")
+    public void onLoanEventTest() {
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).bookId(1l).loanDate(LocalDate.now()).build());
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.RETURNED).bookId(1l).loanDate(LocalDate.now()).build());
+
+        assertThat(service.getPopular(1, 10)).extracting(PopularBookDTO::getLoans).containsExactly(1l);
+    }
+
+    @Test
+    @DisplayName("Should not accept a window longer than the retention")
+    public void invalidWindowTest() {
+        Throwable exception = catchThrowable(() -> service.getPopular(31, 10));
+
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should checkpoint the changed days only after restoring the saved ones")
+    public void checkpointTest() {
+        // cenário
+        LocalDate today = LocalDate.now();
+        when(repository.findByDayGreaterThanEqual(Mockito.any(LocalDate.class))).thenReturn(Arrays.asList(
+                PopularityBucket.builder().day(today).bookId(5l).loans(4l).error(0l).build()));
+        service.record(5l, today);
+
+        // execução
+        int beforeRestore = service.checkpoint();
+        service.restore();
+        int written = service.checkpoint();
+        int unchanged = service.checkpoint();
+
+        // verificações
+        assertThat(beforeRestore).isZero();
+        assertThat(written).isEqualTo(1);
+        assertThat(unchanged).isZero();
+        assertThat(service.getPopular(1, 10)).extracting(PopularBookDTO::getLoans).containsExactly(5l);
+        verify(repository, times(1)).deleteByDay(today);
+        verify(repository, times(1)).saveAll(Mockito.argThat((List<PopularityBucket> rows) ->
+                rows.size() == 1 && rows.get(0).getLoans() == 5l));
+    }
+}
@@ -0,0 +1,70 @@
+package com.victor.library.service;
+
+import com.victor.library.api.dto.BookSuggestionDTO;
+import com.victor.library.model.entity.Book;
+import com.victor.library.model.repository.BookRepository;
+import com.victor.library.service.event.LoanEvent;
+import com.victor.library.service.impl.SuggestServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SuggestServiceTest {
+
+    SuggestServiceImpl service;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.service = new SuggestServiceImpl(repository, 20, 32, 64);
+    }
+
+    @Test
+    @DisplayName("Should suggest books by any word of the title or author ignoring accents and case")
+    public void suggestTest() {
+        // cenário
+        when(repository.findAll(Mockito.any(PageRequest.class))).thenReturn(new PageImpl<>(Arrays.asList(
+                Book.builder().id(1l).title("Aventuras de Maria").author("João").totalLoans(2l).build(),
+                Book.builder().id(2l).title("A Avenida").author("Márcia Souza").totalLoans(7l).build())));
+        service.rebuild();
+
+        // execução e verificações
+        assertThat(service.suggest("ave", 10)).extracting(BookSuggestionDTO::getId).containsExactly(2l, 1l);
+        assertThat(service.suggest("DE MAR", 10)).extracting(BookSuggestionDTO::getId).containsExactly(1l);
+        assertThat(service.suggest("marc", 10)).extracting(BookSuggestionDTO::getId).containsExactly(2l);
+        assertThat(service.suggest("joao", 10)).extracting(BookSuggestionDTO::getTitle).containsExactly("Aventuras de Maria");
+        assertThat(service.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep the suggestions up to date as books change and are loaned")
+    public void incrementalTest() {
+        service.index(Book.builder().id(1l).title("Aventuras").totalLoans(2l).build());
+        service.index(Book.builder().id(2l).title("Avenida").totalLoans(3l).build());
+        service.index(Book.builder().id(3l).title("Avestruz").totalLoans(0l).build());
+
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).bookId(1l).build());
+        service.onLoanEvent(LoanEvent.builder().type(LoanEvent.Type.CREATED).bookId(1l).build());
+        service.index(Book.builder().id(3l).title("Bosque").totalLoans(0l).build());
+        service.remove(2l);
+
+        assertThat(service.suggest("ave", 10)).extracting(BookSuggestionDTO::getId).containsExactly(1l);
+        assertThat(service.suggest("bos", 10)).extracting(BookSuggestionDTO::getTitle).containsExactly("Bosque");
+    }
+}
@@ -0,0 +1,56 @@
+package com.victor.library.service.support;
+
+import com.victor.library.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookCacheTest {
+
+    @Test
+    @DisplayName("Should hand out copies of the cached book")
+    public void copiesTest() {
+        BookCache cache = new BookCache("books", 10, Duration.ofMinutes(10));
+        Book book = Book.builder().id(1l).isbn("123").title("Contos").available(true).build();
+        cache.put(book, cache.stamp());
+
+        book.setAvailable(false);
+        Book first = cache.getById(1l);
+        first.setTitle("Poemas");
+
+        assertThat(first.getAvailable()).isTrue();
+        assertThat(cache.getByIsbn("123").getTitle()).isEqualTo("Contos");
+    }
+
+    @Test
+    @DisplayName("Should drop a put of a book loaded before it was evicted")
+    public void stalePutTest() {
+        BookCache cache = new BookCache("books", 10, Duration.ofMinutes(10));
+        long stamp = cache.stamp();
+        Book loadedBeforeCommit = Book.builder().id(1l).isbn("123").available(true).build();
+
+        cache.evict(1l);
+        boolean stored = cache.put(loadedBeforeCommit, stamp);
+
+        assertThat(stored).isFalse();
+        assertThat(cache.getById(1l)).isNull();
+        assertThat(cache.getByIsbn("123")).isNull();
+
+        assertThat(cache.put(Book.builder().id(1l).isbn("123").available(false).build(), cache.stamp())).isTrue();
+        assertThat(cache.getById(1l).getAvailable()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should expire cached books")
+    public void expireTest() throws InterruptedException {
+        BookCache cache = new BookCache("books", 10, Duration.ofMillis(50));
+        cache.put(Book.builder().id(1l).isbn("123").build(), cache.stamp());
+
+        Thread.sleep(200);
+
+        assertThat(cache.getById(1l)).isNull();
+    }
+}
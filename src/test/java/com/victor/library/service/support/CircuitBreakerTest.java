@@ -0,0 +1,91 @@
+package com.victor.library.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+    private final MovableClock clock = new MovableClock(Instant.parse("2021-12-01T00:00:00Z"));
+
+    @Test
+    @DisplayName("Should open after consecutive failures and reject calls")
+    public void openAfterFailuresTest() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1), clock);
+
+        breaker.recordFailure();
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should let a single probe through once the open period is over")
+    public void halfOpenProbeTest() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMinutes(1), clock);
+        breaker.recordFailure();
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        clock.advance(Duration.ofMinutes(1));
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.recordSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reopen when the probe fails")
+    public void failedProbeTest() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1), clock);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        clock.advance(Duration.ofMinutes(1));
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    static class MovableClock extends Clock {
+        private Instant instant;
+
+        MovableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
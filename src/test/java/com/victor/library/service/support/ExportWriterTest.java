@@ -0,0 +1,58 @@
+package com.victor.library.service.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExportWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    @DisplayName("Should write one JSON object per line")
+    public void ndjsonTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(out, ExportFormat.NDJSON, objectMapper, "id", "title", "loanDate")) {
+            writer.writeRow(1l, "Contos", LocalDate.of(2021, 12, 1));
+            writer.writeRow(2l, null, null);
+        }
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"title\":\"Contos\",\"loanDate\":\"2021-12-01\"}\n" +
+                "{\"id\":2,\"title\":null,\"loanDate\":null}\n");
+    }
+
+    @Test
+    @DisplayName("Should write a CSV header and quote values when needed")
+    public void csvTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(out, ExportFormat.CSV, objectMapper, "id", "title", "returned")) {
+            writer.writeRow(1l, "Contos, \"vol. 1\"", true);
+            writer.writeRow(2l, null, false);
+        }
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "id,title,returned\r\n" +
+                "1,\"Contos, \"\"vol. 1\"\"\",true\r\n" +
+                "2,,false\r\n");
+    }
+
+    @Test
+    @DisplayName("Should find a format by its extension")
+    public void formatTest() {
+        assertThat(ExportFormat.of("CSV")).contains(ExportFormat.CSV);
+        assertThat(ExportFormat.of("xml")).isEmpty();
+    }
+}
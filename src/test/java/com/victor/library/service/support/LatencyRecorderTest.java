@@ -0,0 +1,81 @@
+package com.victor.library.service.support;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyRecorderTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final LatencyRecorder recorder = new LatencyRecorder(now::get);
+
+    @Test
+    @DisplayName("Should attribute exclusive time to each phase of a request")
+    public void phasesTest() {
+        // cenário
+        recorder.begin();
+        advance(1);
+        long controller = recorder.enter();
+        advance(2);
+        long service = recorder.enter();
+        advance(1);
+        long repository = recorder.enter();
+        advance(5);
+        recorder.exit(LatencyRecorder.Phase.REPOSITORY, repository);
+        recorder.exit(LatencyRecorder.Phase.SERVICE, service);
+        long mapping = recorder.enter();
+        advance(3);
+        recorder.exit(LatencyRecorder.Phase.MAPPING, mapping);
+        recorder.exit(LatencyRecorder.Phase.CONTROLLER, controller);
+        advance(4);
+
+        // execução
+        recorder.end("GET /api/loans");
+
+        // verificações
+        Map<LatencyRecorder.Phase, Histogram> phases = recorder.snapshot().get("GET /api/loans");
+        assertThat(millis(phases.get(LatencyRecorder.Phase.CONTROLLER))).isEqualTo(2);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.SERVICE))).isEqualTo(1);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.REPOSITORY))).isEqualTo(5);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.MAPPING))).isEqualTo(3);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.SERIALIZATION))).isEqualTo(4);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.OTHER))).isEqualTo(1);
+        assertThat(millis(phases.get(LatencyRecorder.Phase.TOTAL))).isEqualTo(16);
+    }
+
+    @Test
+    @DisplayName("Should ignore calls made outside of a request")
+    public void outsideRequestTest() {
+        long start = recorder.enter();
+        advance(5);
+        recorder.exit(LatencyRecorder.Phase.SERVICE, start);
+
+        assertThat(start).isNegative();
+        assertThat(recorder.snapshot()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should drop requests that no handler matched")
+    public void unmatchedRequestTest() {
+        recorder.begin();
+        advance(1);
+        recorder.end(null);
+
+        assertThat(recorder.snapshot()).isEmpty();
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private long millis(Histogram histogram) {
+        assertThat(histogram.getTotalCount()).isEqualTo(1);
+        return Math.round(histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,43 @@
+package com.victor.library.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterTest {
+
+    @Test
+    @DisplayName("Should grant up to the rate within a second")
+    public void tryAcquireTest() {
+        Instant start = Instant.parse("2021-12-01T00:00:00Z");
+        RateLimiter limiter = new RateLimiter("test", 2, Clock.fixed(start, ZoneOffset.UTC));
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should not accumulate more than one second of permits")
+    public void refillTest() {
+        CircuitBreakerTest.MovableClock clock = new CircuitBreakerTest.MovableClock(Instant.parse("2021-12-01T00:00:00Z"));
+        RateLimiter limiter = new RateLimiter("test", 2, clock);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        clock.advance(Duration.ofMillis(500));
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        clock.advance(Duration.ofMinutes(10));
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+package com.victor.library.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SingleFlightTest {
+
+    @Test
+    @DisplayName("Should share one load between concurrent callers of the same key")
+    public void coalesceConcurrentLoadsTest() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> flight.load(1l, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "book";
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> flight.load(1l, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (flight.getCoalesced() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("book");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("book");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(flight.getLoads()).isEqualTo(1);
+        assertThat(flight.getCoalesced()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should load again once the previous load has finished")
+    public void loadAfterCompletionTest() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+
+        flight.load(1l, () -> "first");
+        String result = flight.load(1l, () -> "second");
+
+        assertThat(result).isEqualTo("second");
+        assertThat(flight.getLoads()).isEqualTo(2);
+        assertThat(flight.getCoalesced()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should propagate the loader exception")
+    public void loaderExceptionTest() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+
+        Throwable exception = catchThrowable(() -> flight.load(1l, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("database down");
+    }
+
+    @Test
+    @DisplayName("Should expose loads and coalesced calls as metrics")
+    public void metricsTest() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        flight.bindTo(registry);
+
+        flight.load(1l, () -> "book");
+
+        assertThat(registry.get("library.singleflight.loads").tag("name", "test").functionCounter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.get("library.singleflight.coalesced").tag("name", "test").functionCounter().count())
+                .isEqualTo(0.0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
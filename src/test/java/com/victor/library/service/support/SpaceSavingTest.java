@@ -0,0 +1,46 @@
+package com.victor.library.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpaceSavingTest {
+
+    @Test
+    @DisplayName("Should count keys exactly while under capacity")
+    public void exactCountTest() {
+        SpaceSaving<String> summary = new SpaceSaving<>(3);
+        summary.add("a", 1);
+        summary.add("b", 1);
+        summary.add("a", 1);
+
+        List<SpaceSaving.Counter<String>> top = summary.top(2);
+
+        assertThat(top).extracting(SpaceSaving.Counter::getKey).containsExactly("a", "b");
+        assertThat(top).extracting(SpaceSaving.Counter::getCount).containsExactly(2L, 1L);
+        assertThat(top).extracting(SpaceSaving.Counter::getError).containsOnly(0L);
+    }
+
+    @Test
+    @DisplayName("Should replace the smallest counter and keep the heavy hitters")
+    public void evictionTest() {
+        SpaceSaving<Integer> summary = new SpaceSaving<>(2);
+        for (int i = 0; i < 10; i++) {
+            summary.add(1, 1);
+        }
+        summary.add(2, 1);
+        summary.add(3, 1);
+
+        List<SpaceSaving.Counter<Integer>> top = summary.top(2);
+
+        assertThat(summary.size()).isEqualTo(2);
+        assertThat(top.get(0).getKey()).isEqualTo(1);
+        assertThat(top.get(0).getCount()).isEqualTo(10);
+        assertThat(top.get(1).getKey()).isEqualTo(3);
+        assertThat(top.get(1).getCount()).isEqualTo(2);
+        assertThat(top.get(1).getError()).isEqualTo(1);
+    }
+}
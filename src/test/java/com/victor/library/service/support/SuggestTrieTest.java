@@ -0,0 +1,173 @@
+package com.victor.library.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuggestTrieTest {
+
+    @Test
+    @DisplayName("Should return the best scored ids under a prefix")
+    public void topTest() {
+        SuggestTrie trie = new SuggestTrie(2, 32);
+        trie.put(1l, Arrays.asList("aventuras", "maria"), 5);
+        trie.put(2l, Arrays.asList("avenida"), 9);
+        trie.put(3l, Arrays.asList("avestruz"), 1);
+        trie.put(4l, Arrays.asList("bosque"), 100);
+
+        assertThat(trie.top("ave", 10)).containsExactly(2l, 1l);
+        assertThat(trie.top("aven", 1)).containsExactly(2l);
+        assertThat(trie.top("mar", 10)).containsExactly(1l);
+        assertThat(trie.top("x", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should move an id up as its score grows")
+    public void incrementTest() {
+        SuggestTrie trie = new SuggestTrie(2, 32);
+        trie.put(1l, Collections.singletonList("aventuras"), 5);
+        trie.put(2l, Collections.singletonList("avenida"), 9);
+        trie.put(3l, Collections.singletonList("avestruz"), 1);
+
+        trie.increment(3l, 10);
+
+        assertThat(trie.top("ave", 10)).containsExactly(3l, 2l);
+    }
+
+    @Test
+    @DisplayName("Should recompute the best ids after an id is removed or changed")
+    public void removeTest() {
+        SuggestTrie trie = new SuggestTrie(2, 32);
+        trie.put(1l, Collections.singletonList("aventuras"), 5);
+        trie.put(2l, Collections.singletonList("avenida"), 9);
+        trie.put(3l, Collections.singletonList("avestruz"), 1);
+
+        trie.remove(2l);
+        trie.put(1l, Collections.singletonList("bosque"), 5);
+
+        assertThat(trie.top("ave", 10)).containsExactly(3l);
+        assertThat(trie.top("", 10)).containsExactly(1l, 3l);
+        assertThat(trie.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should cut keys and prefixes at the maximum length")
+    public void maxKeyLengthTest() {
+        SuggestTrie trie = new SuggestTrie(2, 4);
+        trie.put(1l, Collections.singletonList("aventuras"), 5);
+
+        assertThat(trie.top("aventuras de maria", 10)).containsExactly(1l);
+    }
+
+    @Test
+    @DisplayName("Should check the whole subtree when too few of the best ids pass the check")
+    public void topWithCheckTest() {
+        SuggestTrie trie = new SuggestTrie(2, 32);
+        trie.put(1l, Collections.singletonList("aventuras"), 5);
+        trie.put(2l, Collections.singletonList("avenida"), 9);
+        trie.put(3l, Collections.singletonList("avestruz"), 1);
+
+        assertThat(trie.top("ave", 10, id -> id != 2l)).containsExactly(1l, 3l);
+        assertThat(trie.top("ave", 1, id -> id == 3l)).containsExactly(3l);
+    }
+
+    @Test
+    @DisplayName("Should share the nodes of word prefixes and drop them with their last id")
+    public void sharedNodesTest() {
+        SuggestTrie trie = new SuggestTrie(2, 32);
+        trie.put(1l, Arrays.asList("mar", "maria"), 5);
+        trie.put(2l, Collections.singletonList("marco"), 9);
+
+        // root, m, a, r, i, a, c, o
+        assertThat(trie.nodes()).isEqualTo(8);
+
+        trie.remove(2l);
+        assertThat(trie.nodes()).isEqualTo(6);
+        assertThat(trie.top("marc", 10)).isEmpty();
+
+        trie.remove(1l);
+        assertThat(trie.nodes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should answer like a full scan while keeping the top only on wide nodes")
+    public void catalogueTest() {
+        // cenário: 20000 books of two to six words out of a vocabulary of 3000
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            vocabulary.add(word(random));
+        }
+        SuggestTrie trie = new SuggestTrie(10, 32, 64);
+        Map<Long, Set<String>> books = new HashMap<>();
+        Map<Long, Long> scores = new HashMap<>();
+        for (long id = 0; id < 20000; id++) {
+            Set<String> words = new HashSet<>();
+            for (int i = 2 + random.nextInt(5); i > 0; i--) {
+                words.add(vocabulary.get(random.nextInt(vocabulary.size())));
+            }
+            books.put(id, words);
+            scores.put(id, (long) random.nextInt(50));
+            trie.put(id, words, scores.get(id));
+        }
+        // the tops kept from these lookups are then updated in place
+        for (char first = 'a'; first <= 'z'; first++) {
+            trie.top(String.valueOf(first), 10);
+        }
+        for (long id = 0; id < 20000; id += 7) {
+            trie.increment(id, 3);
+            scores.put(id, scores.get(id) + 3);
+        }
+        for (long id = 0; id < 20000; id += 11) {
+            trie.remove(id);
+            books.remove(id);
+        }
+
+        // execução e verificações
+        Comparator<Long> byScore = Comparator.comparingLong((Long id) -> scores.get(id)).reversed()
+                .thenComparing(Comparator.naturalOrder());
+        for (char first = 'a'; first <= 'z'; first++) {
+            for (String prefix : Arrays.asList(String.valueOf(first), first + "a", first + "e", first + "o")) {
+                List<Long> expected = books.entrySet().stream()
+                        .filter(book -> book.getValue().stream().anyMatch(word -> word.startsWith(prefix)))
+                        .map(Map.Entry::getKey)
+                        .sorted(byScore)
+                        .limit(10)
+                        .collect(Collectors.toList());
+                assertThat(trie.top(prefix, 10)).as(prefix).isEqualTo(expected);
+            }
+        }
+        Set<String> prefixes = new HashSet<>();
+        books.values().forEach(words -> words.forEach(word -> {
+            for (int i = 1; i <= word.length(); i++) {
+                prefixes.add(word.substring(0, i));
+            }
+        }));
+        assertThat(trie.nodes()).isEqualTo(prefixes.size() + 1);
+        assertThat(trie.keptTops()).isLessThan(trie.nodes() / 10);
+    }
+
+    private static String word(Random random) {
+        String consonants = "bcdfglmnprstv";
+        String vowels = "aeiou";
+        StringBuilder word = new StringBuilder();
+        for (int i = 3 + random.nextInt(7); i > 0; i--) {
+            word.append(i % 2 == 0 ? vowels.charAt(random.nextInt(vowels.length()))
+                    : consonants.charAt(random.nextInt(consonants.length())));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.victor.library.support;
+
+import net.ttddyy.dsproxy.QueryCountHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query budget assertions over the statements the current thread ran since the last
+ * {@link #reset()}. MockMvc runs the request on the test thread, so a reset before
+ * {@code perform} scopes the count to that request, while scheduled jobs running on
+ * their own threads are left out.
+ *
+ * <pre>
+ * QueryCount.reset();
+ * mvc.perform(request);
+ * QueryCount.assertThatQueries().selects(1).inserts(0).updates(0).deletes(0);
+ * </pre>
+ */
+public final class QueryCount {
+
+    static final String DATA_SOURCE = "library";
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    private QueryCount() {
+    }
+
+    public static void reset() {
+        QueryCountHolder.clear();
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * The SQL of the statements counted since the last reset, in the order they ran.
+     */
+    public static List<String> statements() {
+        return Collections.unmodifiableList(new ArrayList<>(STATEMENTS.get()));
+    }
+
+    static void record(String sql) {
+        STATEMENTS.get().add(sql);
+    }
+
+    public static Budget assertThatQueries() {
+        return new Budget(QueryCountHolder.get(DATA_SOURCE));
+    }
+
+    public static class Budget {
+        private final net.ttddyy.dsproxy.QueryCount count;
+
+        Budget(net.ttddyy.dsproxy.QueryCount count) {
+            // nothing counted yet on this thread
+            this.count = count != null ? count : new net.ttddyy.dsproxy.QueryCount();
+        }
+
+        public Budget selects(int expected) {
+            assertThat(count.getSelect()).as("select statements").isEqualTo(expected);
+            return this;
+        }
+
+        public Budget inserts(int expected) {
+            assertThat(count.getInsert()).as("insert statements").isEqualTo(expected);
+            return this;
+        }
+
+        public Budget updates(int expected) {
+            assertThat(count.getUpdate()).as("update statements").isEqualTo(expected);
+            return this;
+        }
+
+        public Budget deletes(int expected) {
+            assertThat(count.getDelete()).as("delete statements").isEqualTo(expected);
+            return this;
+        }
+
+        public Budget total(int expected) {
+            assertThat(count.getTotal()).as("statements").isEqualTo(expected);
+            return this;
+        }
+    }
+}
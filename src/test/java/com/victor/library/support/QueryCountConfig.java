@@ -0,0 +1,46 @@
+package com.victor.library.support;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Wraps the application DataSource so every statement is counted and recorded, per
+ * thread, for the assertions of {@link QueryCount}.
+ */
+@TestConfiguration
+public class QueryCountConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(bean instanceof DataSource) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(QueryCount.DATA_SOURCE)
+                            .countQuery()
+                            .listener(new QueryExecutionListener() {
+                                @Override
+                                public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                                }
+
+                                @Override
+                                public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                                    queryInfoList.forEach(queryInfo -> QueryCount.record(queryInfo.getQuery()));
+                                }
+                            })
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}